@@ -0,0 +1,117 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import operator.AdaptiveBatch;
+
+/**
+ * AdaptiveBatch against buffer(5 ms, maxBatch) and no batching at all, in front of a slow consumer on another thread:
+ * each batch costs a wait of `batchMicros`, like a write, plus `tokens` of CPU per value.
+ * `saturated` is the throughput of `size` values that are all there at once, `idle` the latency of
+ * a single value through an otherwise idle pipeline; each (benchmark, batching) pair is one point of the
+ * latency-vs-throughput chart. buffer can not wait for requests, so its batches queue in onBackpressureBuffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AdaptiveBatchBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    @Param({"512"})
+    public int maxBatch;
+
+    @Param({"none", "buffer", "adaptive"})
+    public String batching;
+
+    @Param({"100"})
+    public int batchMicros;
+
+    @Param({"100"})
+    public int tokens;
+
+    private Integer[] values;
+    private PublishProcessor<Integer> idleSource;
+    private Disposable idlePipeline;
+    private long sent;
+    private volatile long received;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        idleSource = PublishProcessor.create();
+        idlePipeline = idleSource
+                .compose(batching())
+                .observeOn(Schedulers.single(), false, 1)
+                .subscribe(batch -> {
+                    write(batch);
+                    received += batch.size();
+                });
+    }
+
+    @TearDown
+    public void tearDown() {
+        idlePipeline.dispose();
+    }
+
+    private FlowableTransformer<Integer, List<Integer>> batching() {
+        switch (batching) {
+            case "none":
+                return upstream -> upstream.map(Collections::singletonList);
+            case "buffer":
+                return upstream -> upstream.buffer(5, TimeUnit.MILLISECONDS, maxBatch).onBackpressureBuffer();
+            case "adaptive":
+                return AdaptiveBatch.adaptiveBatch(5, TimeUnit.MILLISECONDS, maxBatch);
+            default:
+                throw new IllegalArgumentException(batching);
+        }
+    }
+
+    private void write(List<Integer> batch) {
+        LockSupport.parkNanos(batchMicros * 1000L);
+        Blackhole.consumeCPU((long) tokens * batch.size());
+    }
+
+    @Benchmark
+    public void saturated(Blackhole bh) throws InterruptedException {
+        Flowable.fromArray(values)
+                .compose(batching())
+                .observeOn(Schedulers.single(), false, 1)
+                .doOnNext(this::write)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void idle() {
+        long target = ++sent;
+        // The only writer of received is the consumer, which only ever has this one value
+        idleSource.onNext((int) target);
+        while (received < target) {
+            Thread.yield();
+        }
+    }
+}
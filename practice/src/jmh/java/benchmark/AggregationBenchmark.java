@@ -0,0 +1,136 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import model.Person;
+
+/**
+ * Sample2_4: operators that fold a sequence into a single value or collection.
+ * `cardinality` is the number of distinct keys seen by toMap, toMultimap and groupBy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AggregationBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"16", "65536"})
+    public int cardinality;
+
+    @Param({Sources.SYNC, Sources.ASYNC})
+    public String mode;
+
+    private Person[] people;
+
+    @Setup
+    public void setup() {
+        people = Sources.people(size, cardinality);
+    }
+
+    private Observable<Person> people() {
+        return Sources.mode(Observable.fromArray(people), mode);
+    }
+
+    @Benchmark
+    public void count(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .count()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void reduce(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .reduce((i1, i2) -> i1 + i2)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void scan(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .scan((i1, i2) -> i1 + i2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void scan_minimum(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .scan((i1, i2) -> (i1 < i2) ? i1 : i2)
+                .distinctUntilChanged()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void collect(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .collect(() -> new ArrayList<Integer>(), (acc, value) -> acc.add(value))
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toList(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .toList()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toSortedList(Blackhole bh) {
+        bh.consume(Sources.keys(size, cardinality, mode)
+                .toSortedList((i1, i2) -> i2 - i1)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMap_simple(Blackhole bh) {
+        bh.consume(people()
+                .toMap(person -> person.name)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMap_key_value_container(Blackhole bh) {
+        bh.consume(people()
+                .toMap(person -> person.name, person -> person.age, () -> new HashMap<>())
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void multiMap_grouping(Blackhole bh) {
+        bh.consume(people()
+                .toMultimap(person -> person.age, person -> person.name)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void multiMap_container(Blackhole bh) {
+        bh.consume(people()
+                .toMultimap(
+                        person -> person.age,
+                        person -> person.name,
+                        () -> new HashMap<>(),
+                        key -> new ArrayList<>())
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole bh) throws InterruptedException {
+        people().groupBy(person -> person.age)
+                .flatMapMaybe(group -> group.lastElement())
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import primitive.Chunks;
+import primitive.IntObservable;
+
+/**
+ * Sample2_4.reduce/scan one boxed value at a time, against the chunked aggregations of Chunks.
+ * The element-at-a-time variants compute only a sum, or a minimum; the chunked ones compute all of
+ * count, sum, min, max, mean and variance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkBenchmark {
+    @Param({"10000000"})
+    public int size;
+
+    @Param({"1024"})
+    public int chunk;
+
+    @Benchmark
+    public void reduce_boxed(Blackhole bh) {
+        bh.consume(Observable.range(0, size)
+                .reduce(0L, (acc, v) -> acc + v)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void scan_boxed(Blackhole bh) throws InterruptedException {
+        Observable.range(0, size)
+                .scan(Math::min)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void reduce_primitive(Blackhole bh) {
+        bh.consume(IntObservable.range(0, size)
+                .sum()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void reduce_chunked(Blackhole bh) {
+        bh.consume(Observable.range(0, size)
+                .compose(Chunks.ints(chunk))
+                .as(Chunks.reduceInts())
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void reduce_primitiveChunked(Blackhole bh) {
+        bh.consume(IntObservable.range(0, size)
+                .chunks(chunk)
+                .as(Chunks.reduceInts())
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void scan_primitiveChunked(Blackhole bh) throws InterruptedException {
+        IntObservable.range(0, size)
+                .chunks(chunk)
+                .compose(Chunks.scanInts())
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
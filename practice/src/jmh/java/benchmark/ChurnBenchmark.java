@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.AsyncSubject;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+import subject.StripedAsyncSubject;
+import subject.StripedBehaviorSubject;
+
+/**
+ * Subscribe/dispose churn against emission, on a subject that already has `subscribers` long-lived subscribers.
+ * Three threads subscribe and immediately dispose while one thread emits; each side reports its own rate.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChurnBenchmark {
+    @Param({"behavior", "stripedBehavior", "async", "stripedAsync"})
+    public String impl;
+
+    @Param({"1000", "10000"})
+    public int subscribers;
+
+    private Subject<Integer> subject;
+    private Integer value = 1;
+
+    @Setup
+    public void setup() {
+        switch (impl) {
+            case "behavior":
+                subject = BehaviorSubject.createDefault(0);
+                break;
+            case "stripedBehavior":
+                subject = StripedBehaviorSubject.createDefault(0);
+                break;
+            case "async":
+                subject = AsyncSubject.create();
+                break;
+            default:
+                subject = StripedAsyncSubject.create();
+        }
+        for (int i = 0; i < subscribers; i++) {
+            subject.subscribe(v -> { });
+        }
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public void subscribeDispose(Blackhole bh) {
+        Disposable d = subject.subscribe(bh::consume);
+        d.dispose();
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void emit() {
+        subject.onNext(value);
+    }
+}
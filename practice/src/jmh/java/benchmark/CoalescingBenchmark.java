@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import operator.Coalescing;
+
+/**
+ * Coalescing against debounce and throttleLast on the computation scheduler,
+ * for a burst of `size` values that arrive faster than `timeout`, like keystrokes or sensor readings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CoalescingBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"100"})
+    public long timeout;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    @Benchmark
+    public void debounce(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .debounce(timeout, TimeUnit.MILLISECONDS)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void coalescingDebounce(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .compose(Coalescing.debounce(timeout, TimeUnit.MILLISECONDS))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void throttleLast(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .throttleLast(timeout, TimeUnit.MILLISECONDS)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void coalescingThrottleLast(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .compose(Coalescing.throttleLast(timeout, TimeUnit.MILLISECONDS))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+
+/**
+ * Sample2_5.concatMap against concatMapEager and flatMap, when every inner sequence
+ * takes `latency` milliseconds to produce its values, like a remote call.
+ * These are Flowables, so that concatMapEager holds at most `prefetch` values of each inner sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConcatMapBenchmark {
+    @Param({"100"})
+    public int size;
+
+    @Param({"1"})
+    public int latency;
+
+    @Param({"16"})
+    public int maxConcurrency;
+
+    @Param({"8"})
+    public int prefetch;
+
+    private Flowable<Integer> call(int v) {
+        return Flowable.range(v * 4, 4).delay(latency, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public void concatMap(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .concatMap(this::call)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void concatMapEager(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .concatMapEager(this::call, maxConcurrency, prefetch)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .flatMap(this::call, maxConcurrency)
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
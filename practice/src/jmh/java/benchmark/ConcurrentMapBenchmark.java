@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import operator.ConcurrentMaps;
+
+/**
+ * Sample2_4 toMap/toMultimap over `sources` async partitions: merged into one collector,
+ * against ConcurrentMaps accumulating per thread. The parallel variants split one sequence into rails.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConcurrentMapBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1024", "65536"})
+    public int cardinality;
+
+    @Param({"4"})
+    public int sources;
+
+    private List<Observable<Integer>> partitions;
+
+    @Setup
+    public void setup() {
+        partitions = new ArrayList<>();
+        int partition = size / sources;
+        for (int i = 0; i < sources; i++) {
+            partitions.add(Observable.range(i * partition, partition).subscribeOn(Schedulers.computation()));
+        }
+    }
+
+    @Benchmark
+    public void toMap_merged(Blackhole bh) {
+        bh.consume(Observable.merge(partitions)
+                .toMap(v -> v % cardinality)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMap_concurrent(Blackhole bh) {
+        bh.consume(ConcurrentMaps.toConcurrentMap(partitions, v -> v % cardinality, v -> v, cardinality)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMap_concurrentLong(Blackhole bh) {
+        bh.consume(ConcurrentMaps.toConcurrentLongMap(partitions, v -> v % cardinality, v -> v, cardinality)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMultimap_merged(Blackhole bh) {
+        bh.consume(Observable.merge(partitions)
+                .toMultimap(v -> v % cardinality)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMultimap_concurrent(Blackhole bh) {
+        bh.consume(ConcurrentMaps.toConcurrentMultimap(partitions, v -> v % cardinality, v -> v, cardinality)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toMultimap_parallel(Blackhole bh) {
+        bh.consume(ConcurrentMaps.toConcurrentMultimap(
+                Flowable.range(0, size).parallel(sources).runOn(Schedulers.computation()),
+                v -> v % cardinality, v -> v, cardinality)
+                .blockingGet());
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import subject.MpscPublishSubject;
+
+/**
+ * `producers` threads push `size` values in total into one subject with a single observer.
+ * One op is the whole batch, from the first onNext to the observer having seen the last value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContentionBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "4", "16", "64"})
+    public int producers;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        executor = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void serializedPublishSubject(Blackhole bh) throws InterruptedException {
+        run(PublishSubject.<Integer>create().toSerialized(), bh);
+    }
+
+    @Benchmark
+    public void mpscPublishSubject(Blackhole bh) throws InterruptedException {
+        run(MpscPublishSubject.create(), bh);
+    }
+
+    private void run(Subject<Integer> subject, Blackhole bh) throws InterruptedException {
+        Drain drain = subject.subscribeWith(new Drain(bh));
+        CountDownLatch produced = new CountDownLatch(producers);
+        int perProducer = size / producers;
+        for (int p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    subject.onNext(i);
+                }
+                produced.countDown();
+            });
+        }
+        produced.await();
+        subject.onComplete();
+        drain.await();
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+
+/**
+ * Sample2_1: the factory methods that create a sequence.
+ * Every benchmark drains the whole sequence, so ops/s times `size` is elements per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CreatingBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({Sources.SYNC, Sources.ASYNC})
+    public String mode;
+
+    private Integer[] array;
+    private List<Integer> list;
+
+    @Setup
+    public void setup() {
+        array = new Integer[size];
+        list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            array[i] = i;
+            list.add(i);
+        }
+    }
+
+    @Benchmark
+    public void range(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void fromArray(Blackhole bh) throws InterruptedException {
+        Sources.mode(Observable.fromArray(array), mode)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void fromIterable(Blackhole bh) throws InterruptedException {
+        Sources.mode(Observable.fromIterable(list), mode)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void create(Blackhole bh) throws InterruptedException {
+        Observable<Integer> values = Observable.create(o -> {
+            for (int i = 0; i < size && !o.isDisposed(); i++) {
+                o.onNext(i);
+            }
+            o.onComplete();
+        });
+        Sources.mode(values, mode)
+               .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void defer(Blackhole bh) throws InterruptedException {
+        Sources.mode(Observable.defer(() -> Observable.range(0, size)), mode)
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
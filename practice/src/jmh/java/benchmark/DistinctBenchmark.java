@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.schedulers.Schedulers;
+import operator.DistinctBounded;
+
+/**
+ * DistinctBounded against distinct, on keys drawn from `cardinality` distinct values.
+ * The bounded variants remember at most `maxKeys` keys, so with a higher cardinality they let repeats through.
+ * Run with `-prof gc` to compare allocation per value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DistinctBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1024", "1000000"})
+    public int cardinality;
+
+    @Param({"65536"})
+    public int maxKeys;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    @Benchmark
+    public void distinct(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .distinct()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinctLong(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(DistinctBounded.distinctLong(Integer::longValue, maxKeys))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinctLru(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(DistinctBounded.distinctLru(v -> v, maxKeys))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinctWithin(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(DistinctBounded.distinctWithin(v -> v, 1, TimeUnit.SECONDS, Schedulers.trampoline()))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinctApproximate(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(DistinctBounded.distinctApproximate(Integer::longValue, maxKeys, 0.001))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
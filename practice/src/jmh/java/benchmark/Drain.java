@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Consumes every value into a Blackhole and lets the benchmark thread wait for the terminal event.
+ * Unlike {@code blockingSubscribe}, values are not handed over through a queue,
+ * so the measurement is not dominated by the consumer.
+ * <pre>
+ * values.subscribeWith(new Drain(bh)).await();
+ * </pre>
+ * A Flowable is drained without backpressure: everything is requested up front.
+ */
+public final class Drain implements Observer<Object>, FlowableSubscriber<Object> {
+    private final Blackhole bh;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile Throwable error;
+
+    public Drain(Blackhole bh) {
+        this.bh = bh;
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(Object o) {
+        bh.consume(o);
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        error = e;
+        latch.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        latch.countDown();
+    }
+
+    public void await() throws InterruptedException {
+        latch.await();
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+    }
+}
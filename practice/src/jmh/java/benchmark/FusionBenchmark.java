@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import operator.FusedPipeline;
+
+/**
+ * A chain of `stages` alternating map and filter, as separate RxJava operators and fused.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FusionBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"2", "6", "10"})
+    public int stages;
+
+    @Benchmark
+    public void unfused(Blackhole bh) throws InterruptedException {
+        Observable<Integer> values = Observable.range(0, size);
+        for (int i = 0; i < stages; i++) {
+            values = i % 2 == 0
+                    ? values.map(v -> v + 1)
+                    : values.filter(v -> v % 7 != 0);
+        }
+        values.subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void fused(Blackhole bh) throws InterruptedException {
+        FusedPipeline<Integer, Integer> values = FusedPipeline.from(Observable.range(0, size));
+        for (int i = 0; i < stages; i++) {
+            values = i % 2 == 0
+                    ? values.map(v -> v + 1)
+                    : values.filter(v -> v % 7 != 0);
+        }
+        values.build().subscribeWith(new Drain(bh)).await();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import operator.GroupByWindowed;
+
+/**
+ * Sample2_4.groupBy against GroupByWindowed, with every group consumed as it is emitted.
+ * With `cardinality` above `maxGroups`, the windowed variants evict and reopen groups,
+ * while groupBy keeps all of them; run with `-prof gc` to compare allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GroupByWindowedBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"256", "65536"})
+    public int cardinality;
+
+    @Param({"1024"})
+    public int maxGroups;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    @Benchmark
+    public void groupBy(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .groupBy(v -> v)
+                .doOnNext(group -> group.subscribe(bh::consume))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void groupByWindowed(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(GroupByWindowed.<Integer, Integer>groupByWindowed(v -> v, 1, TimeUnit.MINUTES, maxGroups))
+                .doOnNext(group -> group.subscribe(bh::consume))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void groupByWindowedLong(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .compose(GroupByWindowed.groupByWindowedLong(Integer::longValue, 1, TimeUnit.MINUTES, maxGroups))
+                .doOnNext(group -> group.subscribe(bh::consume))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+
+/**
+ * Sample2_3: operators that inspect a sequence and emit a single answer.
+ * The predicates are chosen so that the whole sequence has to be read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InspectionBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({Sources.SYNC, Sources.ASYNC})
+    public String mode;
+
+    @Benchmark
+    public void all(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .all(i -> i >= 0)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void exists(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .any(i -> i < 0)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void contains(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .contains(size - 1)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void isEmpty(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .filter(i -> i < 0)
+                .isEmpty()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void defaultIfEmpty(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .defaultIfEmpty(2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void elementAt(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .elementAt(size - 1)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void sequenceEqual(Blackhole bh) {
+        bh.consume(Observable.sequenceEqual(Sources.range(size, mode), Sources.range(size, mode))
+                .blockingGet());
+    }
+}
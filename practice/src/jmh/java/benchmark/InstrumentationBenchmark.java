@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import instrument.Instrumentation;
+
+/**
+ * The overhead of Instrumentation on a range/map/filter/groupBy pipeline, with no stage wrapped,
+ * the default ones (groupBy and flatMapMaybe, nothing of mapFilter), only the one being looked at
+ * (the filter, or the groupBy), or every stage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InstrumentationBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"none", "default", "one", "all"})
+    public String stages;
+
+    @Setup
+    public void setup() {
+        switch (stages) {
+            case "none":
+                break;
+            case "default":
+                Instrumentation.install();
+                break;
+            case "one":
+                Instrumentation.install(Instrumentation.DEFAULT_SAMPLE_RATE, false,
+                        stage -> stage.endsWith("ObservableFilter") || stage.endsWith("ObservableGroupBy"));
+                break;
+            case "all":
+                Instrumentation.install(Instrumentation.DEFAULT_SAMPLE_RATE, false, stage -> true);
+                break;
+            default:
+                throw new IllegalArgumentException(stages);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Instrumentation.uninstall();
+    }
+
+    @Benchmark
+    public void mapFilter(Blackhole bh) throws InterruptedException {
+        Sources.range(size, Sources.SYNC)
+                .map(i -> i + 1)
+                .filter(i -> i % 3 != 0)
+                .map(i -> i * 2)
+                .subscribeWith(new Drain(bh))
+                .await();
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole bh) throws InterruptedException {
+        Sources.range(size, Sources.SYNC)
+                .groupBy(i -> i % 16)
+                .flatMapMaybe(group -> group.lastElement())
+                .subscribeWith(new Drain(bh))
+                .await();
+    }
+}
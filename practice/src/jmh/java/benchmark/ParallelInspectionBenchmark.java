@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import operator.ParallelInspection;
+import operator.Sized;
+
+/**
+ * ParallelInspection.all against all, with a predicate that costs about `work` tokens of CPU per value.
+ * The value that fails the predicate is at `failAt` of the way through the sequence, 1 meaning none fails.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelInspectionBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"100"})
+    public int work;
+
+    @Param({"0.1", "1"})
+    public double failAt;
+
+    private boolean test(int i) {
+        Blackhole.consumeCPU(work);
+        return i != (int) (failAt * size);
+    }
+
+    @Benchmark
+    public void all(Blackhole bh) {
+        bh.consume(Observable.range(0, size)
+                .all(this::test)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void parallelAll(Blackhole bh) {
+        bh.consume(Sized.range(0, size)
+                .as(ParallelInspection.all(this::test))
+                .blockingGet());
+    }
+}
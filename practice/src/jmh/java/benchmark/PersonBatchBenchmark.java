@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import model.Person;
+import model.PersonBatches;
+
+/**
+ * One Person per element against columnar PersonBatches, for the groupBy-by-age aggregation of Sample2_4.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PersonBatchBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"100", "65536"})
+    public int cardinality;
+
+    @Param({"1024"})
+    public int batchSize;
+
+    private Person[] people;
+    private String[] names;
+    private int[] ages;
+
+    @Setup
+    public void setup() {
+        people = Sources.people(size, cardinality);
+        names = new String[size];
+        ages = new int[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = people[i].name;
+            ages[i] = people[i].age;
+        }
+    }
+
+    @Benchmark
+    public void multiMap_perPerson(Blackhole bh) {
+        bh.consume(Observable.fromArray(people)
+                .toMultimap(person -> person.age, person -> person.name)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void multiMap_batched(Blackhole bh) {
+        bh.consume(PersonBatches.fromColumns(names, ages, batchSize)
+                .to(PersonBatches::groupByAge)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void filterCount_perPerson(Blackhole bh) {
+        bh.consume(Observable.fromArray(people)
+                .filter(person -> person.age >= cardinality / 2)
+                .groupBy(person -> person.age)
+                .flatMapSingle(group -> group.count())
+                .count()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void filterCount_batched(Blackhole bh) {
+        bh.consume(PersonBatches.fromColumns(names, ages, batchSize)
+                .compose(PersonBatches.filterByAge(age -> age >= cardinality / 2))
+                .to(PersonBatches::countByAge)
+                .blockingGet()
+                .size());
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import operator.PooledBuffer;
+import operator.PooledBuffers;
+
+/**
+ * PooledBuffers against buffer(maxTime, unit, maxSize), flushing every `maxSize` values or 5 milliseconds.
+ * The values are boxed up front, so that with `-prof gc` the allocation per value is the operator's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PooledBufferBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"16", "512"})
+    public int maxSize;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    private Integer[] values;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+    }
+
+    private Observable<Integer> source() {
+        return Sources.mode(Observable.fromArray(values), mode);
+    }
+
+    @Benchmark
+    public void buffer(Blackhole bh) throws InterruptedException {
+        source()
+                .buffer(5, TimeUnit.MILLISECONDS, maxSize)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void bufferPooled(Blackhole bh) throws InterruptedException {
+        source()
+                .compose(PooledBuffers.bufferPooled(maxSize, 5, TimeUnit.MILLISECONDS))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void bufferReleasable(Blackhole bh) throws InterruptedException {
+        source()
+                .compose(PooledBuffers.bufferReleasable(maxSize, 5, TimeUnit.MILLISECONDS))
+                .doOnNext(PooledBuffer::release)
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
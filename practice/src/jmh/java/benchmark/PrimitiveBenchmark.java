@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import primitive.IntObservable;
+import primitive.LongObservable;
+
+/**
+ * Boxed Observable pipelines against their IntObservable/LongObservable equivalents.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PrimitiveBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Benchmark
+    public void mapFilterReduce_boxed(Blackhole bh) {
+        bh.consume(Observable.range(0, size)
+                .filter(i -> i % 2 == 0)
+                .map(i -> i * 3)
+                .reduce((i1, i2) -> i1 + i2)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void mapFilterReduce_primitive(Blackhole bh) {
+        bh.consume(IntObservable.range(0, size)
+                .filter(i -> i % 2 == 0)
+                .map(i -> i * 3)
+                .reduce(Integer::sum)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void scanMax_boxed(Blackhole bh) {
+        bh.consume(Observable.rangeLong(0, size)
+                .scan((i1, i2) -> i1 + i2)
+                .reduce(Math::max)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void scanMax_primitive(Blackhole bh) {
+        bh.consume(LongObservable.range(0, size)
+                .scan(Long::sum)
+                .max()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void count_boxed(Blackhole bh) {
+        bh.consume(Observable.range(0, size)
+                .count()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void count_primitive(Blackhole bh) {
+        bh.consume(IntObservable.range(0, size)
+                .count()
+                .blockingGet());
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import operator.Rails;
+
+/**
+ * Sample2_5.flatMap_1 used for concurrency, against parallel rails, on a CPU-heavy map.
+ * Sweeping `parallelism` from 1 to the number of cores gives the scaling curve;
+ * with `-rf json` each (benchmark, parallelism) pair is one point of the chart.
+ * With `skewed` work, one value in 64 costs 64 times as much, which is where work stealing matters.
+ * On a single CPU the curve is flat whatever the parallelism, and only shows the cost per value of each approach.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RailsBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"uniform", "skewed"})
+    public String work;
+
+    @Param({"100"})
+    public int tokens;
+
+    private Integer heavy(Integer v) {
+        long cost = "skewed".equals(work) && v % 64 == 0 ? tokens * 64L : tokens;
+        Blackhole.consumeCPU(cost);
+        return v;
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .flatMap(v -> Flowable.just(v).subscribeOn(Schedulers.computation()).map(this::heavy), parallelism)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void parallel(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .parallel(parallelism)
+                .runOn(Schedulers.computation())
+                .map(this::heavy)
+                .sequential()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void rails(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .compose(Rails.map(parallelism, Schedulers.computation(), this::heavy))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void railsOrdered(Blackhole bh) throws InterruptedException {
+        Flowable.range(0, size)
+                .compose(Rails.mapOrdered(parallelism, Schedulers.computation(), this::heavy))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
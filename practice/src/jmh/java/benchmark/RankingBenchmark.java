@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import operator.Rankings;
+
+/**
+ * Rankings.topK and Rankings.quantiles against sorting everything with toSortedList, on scrambled ints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RankingBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10"})
+    public int k;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    // Multiplying by an odd constant permutes the ints, so the values are distinct and out of order
+    private Observable<Integer> values() {
+        return Sources.mode(Observable.range(0, size).map(i -> (i * 0x9E3779B9) >>> 1), mode);
+    }
+
+    @Benchmark
+    public void toSortedListTopK(Blackhole bh) {
+        bh.consume(values()
+                .toSortedList(Comparator.reverseOrder())
+                .map(list -> list.subList(0, Math.min(k, list.size())))
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void topK(Blackhole bh) {
+        bh.consume(values()
+                .as(Rankings.topK(k, Comparator.<Integer>naturalOrder()))
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toSortedListQuantiles(Blackhole bh) {
+        bh.consume(values()
+                .toSortedList()
+                .map(RankingBenchmark::percentiles)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void quantiles(Blackhole bh) {
+        bh.consume(values()
+                .as(Rankings.quantiles(Integer::doubleValue, 0.5, 0.9, 0.99))
+                .blockingGet());
+    }
+
+    private static double[] percentiles(List<Integer> sorted) {
+        double[] result = new double[3];
+        double[] fractions = {0.5, 0.9, 0.99};
+        for (int i = 0; i < fractions.length; i++) {
+            result[i] = sorted.get((int) Math.ceil(fractions[i] * sorted.size()) - 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sample2_2: operators that drop values from a sequence.
+ * `cardinality` is the number of distinct values, which drives the size of the set kept by `distinct`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReducingBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"16", "65536"})
+    public int cardinality;
+
+    @Param({Sources.SYNC, Sources.ASYNC})
+    public String mode;
+
+    @Benchmark
+    public void filter(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .filter(v -> v % 2 == 0)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinct(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .distinct()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinct_keySelector(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .distinct(v -> v % cardinality)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void distinct_untilChanged(Blackhole bh) throws InterruptedException {
+        Sources.keys(size, cardinality, mode)
+                .distinctUntilChanged()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void ignoreElements(Blackhole bh) {
+        bh.consume(Sources.range(size, mode)
+                .ignoreElements()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void skip(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .skip(size / 2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void take(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .take(size / 2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void takeWhile(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .takeWhile(v -> v < size / 2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void skipWhile(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .skipWhile(v -> v < size / 2)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void skipLast(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .skipLast(cardinality)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void takeLast(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .takeLast(cardinality)
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
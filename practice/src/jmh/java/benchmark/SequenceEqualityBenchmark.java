@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import operator.SequenceEquality;
+
+/**
+ * SequenceEquality against sequenceEqual on two equal sequences, and the cost of a digest of one of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SequenceEqualityBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"128"})
+    public int bufferSize;
+
+    // Whether the sources may fuse with sequenceEqual; sources read from files or sockets cannot
+    @Param({"true", "false"})
+    public boolean fusable;
+
+    private Flowable<Integer> source() {
+        Flowable<Integer> range = Flowable.range(0, size);
+        return fusable ? range : range.hide();
+    }
+
+    @Benchmark
+    public void observableSequenceEqual(Blackhole bh) {
+        bh.consume(Observable.sequenceEqual(Observable.range(0, size), Observable.range(0, size), bufferSize)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void flowableSequenceEqual(Blackhole bh) {
+        bh.consume(Flowable.sequenceEqual(source(), source(), bufferSize)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void sequenceEqualBounded(Blackhole bh) {
+        bh.consume(SequenceEquality.sequenceEqualBounded(source(), source(), bufferSize)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void sequenceDigest(Blackhole bh) {
+        bh.consume(source()
+                .as(SequenceEquality.sequenceDigest(Integer::longValue))
+                .blockingGet());
+    }
+}
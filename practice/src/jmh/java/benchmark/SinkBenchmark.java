@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.reactivex.Observable;
+import subscriber.BufferedPrintSubscriber;
+import subscriber.PrintSubscriber;
+
+/**
+ * PrintSubscriber against BufferedPrintSubscriber. Both write to a sink that discards the bytes,
+ * so only the cost of formatting, locking and flushing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SinkBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"1024", "65536"})
+    public int flushSize;
+
+    private PrintStream originalOut;
+
+    @Setup
+    public void setup() {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void printSubscriber() {
+        Observable.range(0, size)
+                .subscribe(new PrintSubscriber("Values"));
+    }
+
+    @Benchmark
+    public BufferedPrintSubscriber bufferedPrintSubscriber() {
+        BufferedPrintSubscriber subscriber = new BufferedPrintSubscriber(
+                "Values", new NullChannel(), flushSize, 100, TimeUnit.MILLISECONDS);
+        Observable.range(0, size)
+                .subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static class NullChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
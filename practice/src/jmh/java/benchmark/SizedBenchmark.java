@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import model.Person;
+import operator.Sized;
+
+/**
+ * Sized.count and Sized.elementAt against count and elementAt on a mapped fromArray,
+ * where the sized versions do not depend on `size`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SizedBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private Person[] people;
+
+    @Setup
+    public void setup() {
+        people = Sources.people(size, size);
+    }
+
+    @Benchmark
+    public void count(Blackhole bh) {
+        bh.consume(Observable.fromArray(people)
+                .map(p -> p.name)
+                .count()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void sizedCount(Blackhole bh) {
+        bh.consume(Sized.fromArray(people)
+                .compose(Sized.map(p -> p.name))
+                .as(Sized.count())
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void elementAt(Blackhole bh) {
+        bh.consume(Observable.fromArray(people)
+                .map(p -> p.name)
+                .elementAt(size / 2)
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void sizedElementAt(Blackhole bh) {
+        bh.consume(Sized.fromArray(people)
+                .compose(Sized.map(p -> p.name))
+                .as(Sized.elementAt(size / 2))
+                .blockingGet());
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import operator.SpillingSort;
+import util.Codec;
+
+/**
+ * SpillingSort against sorted and toSortedList on shuffled longs.
+ * With a `memoryBudget` of a few percent of the 8 bytes per value, most values go through temporary files;
+ * with one above it, nothing is written and the difference is the size sampling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SortBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"262144", "16777216"})
+    public long memoryBudget;
+
+    private Long[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new Long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public void sorted(Blackhole bh) throws InterruptedException {
+        Flowable.fromArray(values)
+                .sorted()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void toSortedList(Blackhole bh) {
+        bh.consume(Observable.fromArray(values)
+                .toSortedList()
+                .blockingGet());
+    }
+
+    @Benchmark
+    public void toSortedSpilling(Blackhole bh) throws InterruptedException {
+        Flowable.fromArray(values)
+                .compose(SpillingSort.toSortedSpilling(Comparator.<Long>naturalOrder(), memoryBudget, Codec.LONG))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
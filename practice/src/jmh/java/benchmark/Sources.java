@@ -0,0 +1,41 @@
+package benchmark;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import model.Person;
+
+/**
+ * Shared sources for the benchmarks.
+ * A "sync" source emits on the benchmark thread, an "async" one is subscribed on the computation scheduler,
+ * so that the cost of the thread hop is part of what gets measured.
+ */
+public final class Sources {
+    public static final String SYNC = "sync";
+    public static final String ASYNC = "async";
+
+    private static final String[] NAMES = {"Will", "Nick", "Saul", "Anna", "Mary", "John", "Kate", "Paul"};
+
+    private Sources() {
+    }
+
+    public static <T> Observable<T> mode(Observable<T> source, String mode) {
+        return ASYNC.equals(mode) ? source.subscribeOn(Schedulers.computation()) : source;
+    }
+
+    public static Observable<Integer> range(int size, String mode) {
+        return mode(Observable.range(0, size), mode);
+    }
+
+    // Values repeat every `cardinality` elements, which is what distinct/toMap/groupBy are sensitive to
+    public static Observable<Integer> keys(int size, int cardinality, String mode) {
+        return mode(Observable.range(0, size).map(i -> i % cardinality), mode);
+    }
+
+    public static Person[] people(int size, int cardinality) {
+        Person[] people = new Person[size];
+        for (int i = 0; i < size; i++) {
+            people[i] = new Person(NAMES[i % NAMES.length] + (i % cardinality), i % cardinality);
+        }
+        return people;
+    }
+}
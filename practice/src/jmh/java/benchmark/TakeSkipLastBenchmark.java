@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import operator.TakeSkipLast;
+
+/**
+ * TakeSkipLast against takeLast and skipLast, keeping the last `count` of `size` values.
+ * The values are boxed up front, so that with `-prof gc` the allocation per value is the operator's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TakeSkipLastBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10000"})
+    public int count;
+
+    @Param({Sources.SYNC})
+    public String mode;
+
+    private Integer[] values;
+
+    @Setup
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+    }
+
+    private Observable<Integer> source() {
+        return Sources.mode(Observable.fromArray(values), mode);
+    }
+
+    @Benchmark
+    public void takeLast(Blackhole bh) throws InterruptedException {
+        source()
+                .takeLast(count)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void ringTakeLast(Blackhole bh) throws InterruptedException {
+        source()
+                .compose(TakeSkipLast.takeLast(count))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void skipLast(Blackhole bh) throws InterruptedException {
+        source()
+                .skipLast(count)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void ringSkipLast(Blackhole bh) throws InterruptedException {
+        source()
+                .compose(TakeSkipLast.skipLast(count))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void takeLastTimed(Blackhole bh) throws InterruptedException {
+        source()
+                .takeLast(count, 1, TimeUnit.MINUTES, Schedulers.trampoline())
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void ringTakeLastTimed(Blackhole bh) throws InterruptedException {
+        source()
+                .compose(TakeSkipLast.takeLast(count, 1, TimeUnit.MINUTES, Schedulers.trampoline()))
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
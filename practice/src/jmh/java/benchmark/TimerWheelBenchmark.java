@@ -0,0 +1,86 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import scheduler.TimerWheelScheduler;
+
+/**
+ * TimerWheelScheduler against Schedulers.computation(), with `timers` tasks pending at once.
+ * The `scheduleAndDispose` benchmarks schedule them a minute ahead and dispose them all, like timeouts
+ * of requests that complete in time; the `expire` ones let them run 1 to 10 milliseconds later.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TimerWheelBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int timers;
+
+    private TimerWheelScheduler wheel;
+    private Disposable[] pending;
+
+    @Setup
+    public void setup() {
+        wheel = new TimerWheelScheduler(1, TimeUnit.MILLISECONDS);
+        pending = new Disposable[timers];
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.shutdown();
+    }
+
+    @Benchmark
+    public void computationScheduleAndDispose() {
+        scheduleAndDispose(Schedulers.computation());
+    }
+
+    @Benchmark
+    public void timerWheelScheduleAndDispose() {
+        scheduleAndDispose(wheel);
+    }
+
+    @Benchmark
+    public void computationExpire() throws InterruptedException {
+        expire(Schedulers.computation());
+    }
+
+    @Benchmark
+    public void timerWheelExpire() throws InterruptedException {
+        expire(wheel);
+    }
+
+    private void scheduleAndDispose(Scheduler scheduler) {
+        Runnable task = () -> { };
+        for (int i = 0; i < timers; i++) {
+            pending[i] = scheduler.scheduleDirect(task, 1, TimeUnit.MINUTES);
+        }
+        for (int i = 0; i < timers; i++) {
+            pending[i].dispose();
+            pending[i] = null;
+        }
+    }
+
+    private void expire(Scheduler scheduler) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(timers);
+        Runnable task = done::countDown;
+        for (int i = 0; i < timers; i++) {
+            scheduler.scheduleDirect(task, 1 + i % 10, TimeUnit.MILLISECONDS);
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+
+/**
+ * Sample2_5: operators that transform the values of a sequence.
+ * `fanOut` is the number of values each flatMap/concatMap inner sequence emits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransformationBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"1", "16"})
+    public int fanOut;
+
+    @Param({Sources.SYNC, Sources.ASYNC})
+    public String mode;
+
+    private List<Integer> inner;
+
+    @Setup
+    public void setup() {
+        inner = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            inner.add(i);
+        }
+    }
+
+    @Benchmark
+    public void map(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .map(i -> i + 3)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void map_practical(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .map(String::valueOf)
+                .map(Integer::parseInt)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void cast(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .<Object>map(i -> i)
+                .cast(Integer.class)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void ofType(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .<Object>map(i -> i % 2 == 0 ? i : String.valueOf(i))
+                .ofType(Integer.class)
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void materialize(Blackhole bh) throws InterruptedException {
+        Sources.range(size, mode)
+                .materialize()
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void flatMap(Blackhole bh) throws InterruptedException {
+        Sources.range(size / fanOut, mode)
+                .flatMap(i -> Observable.range(i, fanOut))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void concatMap(Blackhole bh) throws InterruptedException {
+        Sources.range(size / fanOut, mode)
+                .concatMap(i -> Observable.range(i, fanOut))
+                .subscribeWith(new Drain(bh)).await();
+    }
+
+    @Benchmark
+    public void flatMapIterable(Blackhole bh) throws InterruptedException {
+        Sources.range(size / fanOut, mode)
+                .flatMapIterable(i -> inner)
+                .subscribeWith(new Drain(bh)).await();
+    }
+}
@@ -2,6 +2,7 @@ import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
+import operator.TakeSkipLast;
 
 public class Sample2_2 {
   //Reducing a sequence
@@ -210,6 +211,28 @@ public class Sample2_2 {
         );
   }
 
+  public void takeLast_ring() {
+    // `TakeSkipLast` keeps the last values in an array of `count` slots instead of a growing queue,
+    // so keeping the last 10000 of a long sequence allocates nothing per value
+    Observable<Integer> values = Observable.range(0, 1_000_000);
+
+    Disposable last = values
+        .compose(TakeSkipLast.takeLast(3))
+        .subscribe(
+            v -> System.out.println("Last: " + v),
+            e -> System.out.println("Error: " + e),
+            () -> System.out.println("Completed")
+        );
+
+    Disposable skipped = Observable.range(0, 5)
+        .compose(TakeSkipLast.skipLast(2))
+        .subscribe(
+            v -> System.out.println("SkipLast: " + v),
+            e -> System.out.println("Error: " + e),
+            () -> System.out.println("Completed")
+        );
+  }
+
   public void takeUntil() {
     // The cutoff point is defined as the moment when another obervable emits an item
     Observable<Long> values = Observable.interval(100, TimeUnit.MILLISECONDS);
@@ -1,8 +1,14 @@
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.internal.operators.observable.ObservableInternalHelper;
+import io.reactivex.schedulers.Schedulers;
+import operator.ParallelInspection;
+import operator.SequenceEquality;
+import operator.Sized;
+import operator.SizedObservable;
 
 public class Sample2_3 {
 
@@ -86,6 +92,27 @@ public class Sample2_3 {
         );
   }
 
+  public void all_parallel() {
+    // When the values are known up front, they can be tested in parallel on a ForkJoinPool.
+    // The answer is still the serial one: 1 fails the predicate before 3 makes it throw, so `false` is printed and the error is not.
+    // As soon as 1 is tested, the ranges after it stop.
+    SizedObservable<Integer> values = Sized.range(0, 1_000_000);
+
+    Disposable disposable = values
+        .as(ParallelInspection.all(i -> {
+          if (i == 3) {
+            throw new Exception();
+          }
+          return i % 2 == 0;
+        }))
+        .subscribe(
+            v -> System.out.println(v),
+            e -> System.out.println("Error: " + e)
+        );
+
+    try {System.in.read();} catch (Exception ignore) {}
+  }
+
   public void exist() {
     // Change to use `Maybe` in RxJava2 ?
     // The exist method returns an observable that will emit `true` if any of the values emitted by the observable make the predicate true
@@ -212,6 +239,29 @@ public class Sample2_3 {
 
   }
 
+  public void sequenceEqual_bounded() {
+    // `Observable.sequenceEqual` queues the values of the faster sequence until the slower one catches up.
+    // With `Flowable`s, the faster one is only asked for `bufferSize` values ahead of the slower one.
+    // A digest compares sequences that are not available at the same time, or in the same place
+    Flowable<Integer> primary = Flowable.range(0, 1_000_000);
+    Flowable<Integer> replica = Flowable.range(0, 1_000_000).subscribeOn(Schedulers.io());
+
+    SequenceEquality.sequenceEqualBounded(primary, replica, 128)
+              .subscribe(
+                  v -> System.out.println("Equal: " + v),
+                  e -> System.out.println("Error: " + e)
+              );
+
+    primary
+        .as(SequenceEquality.sequenceDigest(Integer::longValue))
+        .subscribe(
+            v -> System.out.println("Digest: " + Long.toHexString(v)),
+            e -> System.out.println("Error: " + e)
+        );
+
+    try {System.in.read();} catch (Exception ignore) {}
+  }
+
   public void sequenceEqual_error() {
     //failing is not part of the comparision. As soon as either sequence fails, the resulting observable forwards the error
     Observable<Integer> values = Observable.create( o -> {
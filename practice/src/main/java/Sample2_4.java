@@ -6,6 +6,8 @@ import io.reactivex.Observable;
 import io.reactivex.subjects.ReplaySubject;
 import io.reactivex.subjects.Subject;
 import model.Person;
+import operator.Sized;
+import operator.SizedObservable;
 import subscriber.PrintSubscriber;
 
 public class Sample2_4 {
@@ -26,6 +28,24 @@ public class Sample2_4 {
 
     }
 
+    public void count_sized() {
+        // `count` subscribes and counts every value, even when the source already knows how many there are.
+        // The sources of `Sized` do know, and keep knowing through `Sized.map`, so `Sized.count` only reads the length.
+        // After any other operator, like `filter`, it counts as usual.
+        SizedObservable<Integer> values = Sized.range(0, 1_000_000);
+
+        values
+                .compose(Sized.map(i -> i * 2))
+                .as(Sized.count())
+                .subscribe(new PrintSubscriber("Count"));
+
+        values
+                .filter(i -> i % 2 == 0)
+                .as(Sized.count())
+                .subscribe(new PrintSubscriber("Count even"));
+
+    }
+
     public void first() {
         // `first` will return an observable that emits only the first value in sequence
         // It is similar to `take(1)`, except that it will emit `java.util.NoSuchElementException` if noe is found.
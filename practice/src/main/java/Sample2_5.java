@@ -1,5 +1,6 @@
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import subscriber.PrintSubscriber;
 
@@ -156,6 +157,26 @@ public class Sample2_5 {
 
    }
 
+    public void concatMapEager() {
+        // `concatMap` only subscribes to the next sequence once the current one has terminated, so when the sequences are slow to start, like remote calls, their latencies add up
+        // `concatMapEager` subscribes to up to `maxConcurrency` sequences at once, like `flatMap`, but still emits them in source order, like `concatMap`
+        // We use Flowable's version: it requests at most `prefetch` values of each sequence ahead of the one being emitted, and holds them in a queue of that size
+        // Observable's version has no backpressure, so a fast sequence that is not being emitted yet is buffered without limit
+
+        Flowable.just(300, 200, 100)
+                .concatMapEager( i ->
+                        Flowable.interval(i, TimeUnit.MILLISECONDS)
+                            .map(v -> i)
+                            .take(3),
+                        3,
+                        16
+                )
+                .toObservable()
+                .subscribe(new PrintSubscriber("concatMapEager"));
+
+        // The output is in the same order as with `concatMap`, but the three sequences run side by side, so it all ends after 900ms instead of 1800ms
+    }
+
 
     public static void main(String[] args) {
         Sample2_5 sample = new Sample2_5();
@@ -0,0 +1,26 @@
+package instrument;
+
+/**
+ * The JMX view of {@link Instrumentation}, registered as {@value Instrumentation#OBJECT_NAME}.
+ */
+public interface InstrumentationMBean {
+    boolean isEnabled();
+
+    String[] getStages();
+
+    long getOnNextCount(String stage);
+
+    long getRequested(String stage);
+
+    long getOutstanding(String stage);
+
+    long getQueued(String stage);
+
+    double getMeanLatencyNanos(String stage);
+
+    long getLatencyPercentileNanos(String stage, double percentile);
+
+    String[] dump();
+
+    void reset();
+}
@@ -0,0 +1,190 @@
+package instrument;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableSubscriber;
+
+/**
+ * The {@link Flowable} counterpart of {@link InstrumentedObservable}, which also records
+ * how much was requested, how much of it is still outstanding and, for the stage it {@link #feeds},
+ * how many of the values it prefetched it still holds.
+ */
+final class InstrumentedFlowable<T> extends Flowable<T> {
+    private final Flowable<T> source;
+    final StageStats stats;
+    private final int sampleMask;
+    // The one stage assembled on top of this one, if there is exactly one
+    private StageStats consumer;
+    private boolean shared;
+
+    InstrumentedFlowable(Flowable<T> source, StageStats stats, int sampleMask) {
+        this.source = source;
+        this.stats = stats;
+        this.sampleMask = sampleMask;
+    }
+
+    /**
+     * Records that {@code next} was assembled on top of this stage. What its requests leave outstanding
+     * here is what tells how deep its queue is; a stage read by more than one operator tells for none of them.
+     */
+    synchronized void feeds(StageStats next) {
+        if (consumer == null && !shared) {
+            consumer = next;
+        } else if (consumer != next) {
+            consumer = null;
+            shared = true;
+        }
+    }
+
+    private synchronized StageStats consumer() {
+        return consumer;
+    }
+
+    @Override
+    protected void subscribeActual(Subscriber<? super T> s) {
+        stats.subscriptions.increment();
+        source.subscribe(new InstrumentedSubscriber<>(s, stats, consumer(), sampleMask));
+    }
+
+    /**
+     * Counts values like {@link InstrumentedObservable.InstrumentedObserver}. What is requested and not yet delivered
+     * is kept both here and in the shared gauges, and taken back from them once the subscription ends,
+     * so that they only cover live subscriptions.
+     */
+    static final class InstrumentedSubscriber<T> extends AtomicInteger implements FlowableSubscriber<T>, Subscription {
+        private static final long serialVersionUID = 1L;
+        // The outstanding count once it has been taken back from the gauges
+        private static final long RELEASED = Long.MIN_VALUE;
+
+        private final Subscriber<? super T> downstream;
+        private final StageStats stats;
+        private final StageStats consumer;
+        private final int sampleMask;
+        private final AtomicLong outstanding = new AtomicLong();
+        // The first request, which operators that prefetch make for their whole queue; requests are serialized
+        private volatile long prefetch;
+        private Subscription upstream;
+        private int count;
+
+        InstrumentedSubscriber(Subscriber<? super T> downstream, StageStats stats, StageStats consumer, int sampleMask) {
+            this.downstream = downstream;
+            this.stats = stats;
+            this.consumer = consumer;
+            this.sampleMask = sampleMask;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            upstream = s;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if ((++count & sampleMask) != 0) {
+                downstream.onNext(t);
+            } else {
+                sample(t);
+            }
+        }
+
+        // Kept out of onNext, so that it stays small enough to be inlined into the operator upstream
+        private void sample(T t) {
+            long start = System.nanoTime();
+            downstream.onNext(t);
+            stats.latency.record(System.nanoTime() - start);
+            flush();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            flush();
+            release();
+            stats.onError.increment();
+            downstream.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            flush();
+            release();
+            stats.onComplete.increment();
+            downstream.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n == Long.MAX_VALUE) {
+                // Nothing is left to count, and nothing is queued for long
+                release();
+            } else if (n > 0) {
+                stats.requested.add(n);
+                if (prefetch == 0) {
+                    prefetch = n;
+                    addOutstanding(n, 0);
+                } else {
+                    addOutstanding(n, -n);
+                }
+            }
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            flush();
+            release();
+            upstream.cancel();
+        }
+
+        private void flush() {
+            for (;;) {
+                int f = get();
+                // Differences stay right when the count wraps around, as it is flushed far more often than that
+                int delivered = count - f;
+                if (delivered <= 0) {
+                    return;
+                }
+                if (compareAndSet(f, f + delivered)) {
+                    stats.onNext.add(delivered);
+                    addOutstanding(-delivered, delivered);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * The consumer holds the values delivered to it that it has not requested again,
+         * that is its prefetch minus what is outstanding.
+         */
+        private void addOutstanding(long delta, long queuedDelta) {
+            for (;;) {
+                long o = outstanding.get();
+                if (o == RELEASED) {
+                    return;
+                }
+                if (outstanding.compareAndSet(o, o + delta)) {
+                    stats.outstanding.add(delta);
+                    if (consumer != null) {
+                        consumer.queued.add(queuedDelta);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void release() {
+            long o = outstanding.getAndSet(RELEASED);
+            if (o != RELEASED) {
+                stats.outstanding.add(-o);
+                if (consumer != null && prefetch != 0) {
+                    consumer.queued.add(o - prefetch);
+                }
+            }
+        }
+    }
+}
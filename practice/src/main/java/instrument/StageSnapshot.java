@@ -0,0 +1,63 @@
+package instrument;
+
+/**
+ * The counters of one stage at the time {@link Instrumentation#snapshot()} was called.
+ * Latencies are in nanoseconds and cover the time spent downstream of the stage for the sampled values.
+ * <p>
+ * {@code outstanding} is what live subscriptions requested from the stage and did not get yet.
+ * {@code queued} is the depth of the stage's own queue: the values it prefetched from the stage before
+ * and has not consumed, taken as its first request minus what it still has outstanding there.
+ * That is exact for operators that prefetch, like observeOn, flatMap, concatMap or groupBy,
+ * to within the batch they request again in. Operators that pass requests through, like map or filter,
+ * show the queue of the operator downstream of them. It is only known for Flowable stages on top of
+ * an instrumented stage: Observables have no requests to tell how much an operator holds.
+ */
+public final class StageSnapshot {
+    public final String name;
+    public final long subscriptions;
+    public final long onNext;
+    public final long onError;
+    public final long onComplete;
+    public final long requested;
+    public final long outstanding;
+    public final long queued;
+    public final long latencySamples;
+    public final double meanLatency;
+    public final long p50Latency;
+    public final long p99Latency;
+    public final long maxLatency;
+
+    StageSnapshot(String name, long subscriptions, long onNext, long onError, long onComplete, long requested,
+                  long outstanding, long queued, long latencySamples, double meanLatency,
+                  long p50Latency, long p99Latency, long maxLatency) {
+        this.name = name;
+        this.subscriptions = subscriptions;
+        this.onNext = onNext;
+        this.onError = onError;
+        this.onComplete = onComplete;
+        this.requested = requested;
+        this.outstanding = outstanding;
+        this.queued = queued;
+        this.latencySamples = latencySamples;
+        this.meanLatency = meanLatency;
+        this.p50Latency = p50Latency;
+        this.p99Latency = p99Latency;
+        this.maxLatency = maxLatency;
+    }
+
+    @Override
+    public String toString() {
+        return name
+                + ": subscriptions=" + subscriptions
+                + ", onNext=" + onNext
+                + ", onError=" + onError
+                + ", onComplete=" + onComplete
+                + ", requested=" + requested
+                + ", outstanding=" + outstanding
+                + ", queued=" + queued
+                + ", latency(ns) mean=" + (long) meanLatency
+                + " p50=" + p50Latency
+                + " p99=" + p99Latency
+                + " max=" + maxLatency;
+    }
+}
@@ -0,0 +1,54 @@
+package instrument;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one pipeline stage, summed over all of its subscriptions.
+ */
+final class StageStats {
+    final String name;
+    final LongAdder subscriptions = new LongAdder();
+    final LongAdder onNext = new LongAdder();
+    final LongAdder onError = new LongAdder();
+    final LongAdder onComplete = new LongAdder();
+    final LongAdder requested = new LongAdder();
+    // Requested from the stage and not yet delivered, over live subscriptions with bounded requests
+    final LongAdder outstanding = new LongAdder();
+    // Values prefetched from the stage before and not consumed yet, for Flowable stages
+    final LongAdder queued = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    StageSnapshot snapshot() {
+        return new StageSnapshot(
+                name,
+                subscriptions.sum(),
+                onNext.sum(),
+                onError.sum(),
+                onComplete.sum(),
+                requested.sum(),
+                outstanding.sum(),
+                queued.sum(),
+                latency.count(),
+                latency.mean(),
+                latency.percentile(50),
+                latency.percentile(99),
+                latency.max());
+    }
+
+    /**
+     * Resets the counters. The outstanding and queued gauges are kept, since live subscriptions will take back
+     * from them what they added.
+     */
+    void reset() {
+        subscriptions.reset();
+        onNext.reset();
+        onError.reset();
+        onComplete.reset();
+        requested.reset();
+        latency.reset();
+    }
+}
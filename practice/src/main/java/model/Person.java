@@ -2,7 +2,7 @@ package model;
 
 public class Person {
     public final String name;
-    public final Integer age;
+    public final int age;
     public Person(String name, int age) {
         this.name = name;
         this.age = age;
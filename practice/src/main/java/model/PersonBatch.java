@@ -0,0 +1,47 @@
+package model;
+
+import java.util.List;
+
+/**
+ * A column-oriented slice of people: the i-th person is {@code names[i]} aged {@code ages[i]}.
+ * Ages stay primitive, so a whole batch can be filtered or grouped without allocating per person.
+ * Only the first {@code size} entries of the arrays are valid.
+ */
+public class PersonBatch {
+    public final String[] names;
+    public final int[] ages;
+    public final int size;
+
+    public PersonBatch(String[] names, int[] ages, int size) {
+        if (names.length < size || ages.length < size) {
+            throw new IllegalArgumentException("Columns are shorter than size " + size);
+        }
+        this.names = names;
+        this.ages = ages;
+        this.size = size;
+    }
+
+    public static PersonBatch of(List<Person> people) {
+        int size = people.size();
+        String[] names = new String[size];
+        int[] ages = new int[size];
+        for (int i = 0; i < size; i++) {
+            Person person = people.get(i);
+            names[i] = person.name;
+            ages[i] = person.age;
+        }
+        return new PersonBatch(names, ages, size);
+    }
+
+    public Person get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return new Person(names[i], ages[i]);
+    }
+
+    @Override
+    public String toString() {
+        return "PersonBatch[size=" + size + "]";
+    }
+}
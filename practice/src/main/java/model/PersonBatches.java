@@ -0,0 +1,157 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Single;
+import util.LongObjectMap;
+
+/**
+ * Sources and operators for {@code Observable<PersonBatch>}.
+ * The operators are transformers, to be applied with {@code compose}:
+ * <pre>
+ * PersonBatches.fromColumns(names, ages, 1024)
+ *         .compose(PersonBatches.filterByAge(age -> age >= 18))
+ *         .to(PersonBatches::groupByAge)
+ * </pre>
+ */
+public final class PersonBatches {
+    private PersonBatches() {
+    }
+
+    /**
+     * Emits the columns in batches of at most {@code batchSize} people.
+     */
+    public static Observable<PersonBatch> fromColumns(String[] names, int[] ages, int batchSize) {
+        if (names.length != ages.length) {
+            throw new IllegalArgumentException("names and ages must have the same length");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize > 0 required but it was " + batchSize);
+        }
+        int batches = (names.length + batchSize - 1) / batchSize;
+        return Observable.range(0, batches)
+                .map(b -> {
+                    int from = b * batchSize;
+                    int to = Math.min(from + batchSize, names.length);
+                    return new PersonBatch(
+                            Arrays.copyOfRange(names, from, to),
+                            Arrays.copyOfRange(ages, from, to),
+                            to - from);
+                });
+    }
+
+    /**
+     * Packs a stream of people into batches of at most {@code batchSize}.
+     */
+    public static ObservableTransformer<Person, PersonBatch> batch(int batchSize) {
+        return people -> people
+                .buffer(batchSize)
+                .map(PersonBatch::of);
+    }
+
+    /**
+     * Turns batches back into one {@link Person} per element.
+     */
+    public static Observable<Person> toPeople(Observable<PersonBatch> batches) {
+        return batches.concatMap(batch -> Observable.range(0, batch.size).map(batch::get));
+    }
+
+    public static ObservableTransformer<PersonBatch, PersonBatch> mapAges(IntUnaryOperator mapper) {
+        return batches -> batches.map(batch -> {
+            int[] ages = new int[batch.size];
+            for (int i = 0; i < batch.size; i++) {
+                ages[i] = mapper.applyAsInt(batch.ages[i]);
+            }
+            return new PersonBatch(batch.names, ages, batch.size);
+        });
+    }
+
+    public static ObservableTransformer<PersonBatch, PersonBatch> mapNames(UnaryOperator<String> mapper) {
+        return batches -> batches.map(batch -> {
+            String[] names = new String[batch.size];
+            for (int i = 0; i < batch.size; i++) {
+                names[i] = mapper.apply(batch.names[i]);
+            }
+            return new PersonBatch(names, batch.ages, batch.size);
+        });
+    }
+
+    /**
+     * Keeps the people whose age matches. Batches left empty are dropped.
+     */
+    public static ObservableTransformer<PersonBatch, PersonBatch> filterByAge(IntPredicate predicate) {
+        return batches -> batches
+                .map(batch -> {
+                    String[] names = new String[batch.size];
+                    int[] ages = new int[batch.size];
+                    int n = 0;
+                    for (int i = 0; i < batch.size; i++) {
+                        if (predicate.test(batch.ages[i])) {
+                            names[n] = batch.names[i];
+                            ages[n] = batch.ages[i];
+                            n++;
+                        }
+                    }
+                    return new PersonBatch(names, ages, n);
+                })
+                .filter(batch -> batch.size > 0);
+    }
+
+    /**
+     * The batch equivalent of {@code toMultimap(person -> person.age, person -> person.name)}.
+     * Ages are grouped in a primitive-keyed map and only boxed once per distinct age, at the end.
+     */
+    public static Single<Map<Integer, List<String>>> groupByAge(Observable<PersonBatch> batches) {
+        return batches
+                .collect(
+                        () -> new LongObjectMap<List<String>>(),
+                        (groups, batch) -> {
+                            for (int i = 0; i < batch.size; i++) {
+                                List<String> group = groups.get(batch.ages[i]);
+                                if (group == null) {
+                                    group = new ArrayList<>();
+                                    groups.put(batch.ages[i], group);
+                                }
+                                group.add(batch.names[i]);
+                            }
+                        })
+                .map(groups -> {
+                    Map<Integer, List<String>> result = new HashMap<>(groups.size() * 2);
+                    groups.forEach((age, names) -> result.put((int) age, names));
+                    return result;
+                });
+    }
+
+    /**
+     * Number of people per age, counted in primitive counters.
+     */
+    public static Single<Map<Integer, Long>> countByAge(Observable<PersonBatch> batches) {
+        return batches
+                .collect(
+                        () -> new LongObjectMap<long[]>(),
+                        (counts, batch) -> {
+                            for (int i = 0; i < batch.size; i++) {
+                                long[] count = counts.get(batch.ages[i]);
+                                if (count == null) {
+                                    count = new long[1];
+                                    counts.put(batch.ages[i], count);
+                                }
+                                count[0]++;
+                            }
+                        })
+                .map(counts -> {
+                    Map<Integer, Long> result = new HashMap<>(counts.size() * 2);
+                    counts.forEach((age, count) -> result.put((int) age, count[0]));
+                    return result;
+                });
+    }
+}
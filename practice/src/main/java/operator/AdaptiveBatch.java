@@ -0,0 +1,305 @@
+package operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.exceptions.MissingBackpressureException;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * Batches values by how fast the downstream takes them, instead of by a fixed time or count.
+ * <pre>
+ * events.compose(AdaptiveBatch.adaptiveBatch(2, TimeUnit.MILLISECONDS, 512))
+ *       .observeOn(Schedulers.io(), false, 1)
+ *       .subscribe(writer::writeAll);
+ * </pre>
+ * {@code buffer(time, count)} holds the first value of an idle source for {@code time} for nothing,
+ * and caps the batches of a busy one at {@code count} however slow the downstream is. Here a batch is emitted
+ * whenever the downstream requests one and there are values: whatever arrived since the last batch,
+ * so one value when idle, and as many as piled up during the last downstream call when busy.
+ * <p>
+ * The size of a batch is limited, between 1 and {@code maxBatch}, by how long the downstream takes for one:
+ * from when it is emitted to when the downstream requests the next, or until its {@code onNext} returns if
+ * it has requested more already. Over {@code targetLatency}, the limit is halved; when a full batch took
+ * less than half of it, the limit grows by a quarter. A value waits for about one batch before its own,
+ * so its latency stays within about twice {@code targetLatency}, while a downstream with a high cost per batch,
+ * like a write or a network call, gets batches as large as that allows. At most twice the limit is requested
+ * from upstream ahead of the downstream, so values that cannot be taken soon stay upstream, under backpressure.
+ * <p>
+ * The downstream should request a batch at a time, like {@code observeOn(scheduler, false, 1)}, or process it
+ * on the thread that emits it; {@code targetLatency} should be more than it takes for one value,
+ * or the limit stays at 1.
+ */
+public final class AdaptiveBatch {
+
+    private AdaptiveBatch() {
+    }
+
+    public static <T> FlowableTransformer<T, List<T>> adaptiveBatch(long targetLatency, TimeUnit unit, int maxBatch) {
+        if (targetLatency <= 0) {
+            throw new IllegalArgumentException("targetLatency > 0 required but it was " + targetLatency);
+        }
+        if (maxBatch <= 0 || maxBatch > 1 << 29) {
+            throw new IllegalArgumentException("0 < maxBatch <= 2^29 required but it was " + maxBatch);
+        }
+        long targetNanos = unit.toNanos(targetLatency);
+        return upstream -> new AdaptiveBatchFlowable<>(upstream, targetNanos, maxBatch);
+    }
+
+    static final class AdaptiveBatchFlowable<T> extends Flowable<List<T>> {
+        final Publisher<T> source;
+        final long targetNanos;
+        final int maxBatch;
+
+        AdaptiveBatchFlowable(Publisher<T> source, long targetNanos, int maxBatch) {
+            this.source = source;
+            this.targetNanos = targetNanos;
+            this.maxBatch = maxBatch;
+        }
+
+        @Override
+        protected void subscribeActual(Subscriber<? super List<T>> subscriber) {
+            source.subscribe(new BatchSubscriber<>(subscriber, targetNanos, maxBatch));
+        }
+    }
+
+    /**
+     * Queues the values in a single-producer single-consumer ring, and emits them from the drain loop
+     * of the wip counter it extends.
+     */
+    static final class BatchSubscriber<T> extends AtomicInteger implements FlowableSubscriber<T>, Subscription {
+        private static final long serialVersionUID = 1L;
+
+        final Subscriber<? super List<T>> downstream;
+        final long targetNanos;
+        final int maxBatch;
+        final Object[] values;
+        final int mask;
+        // Total requested by downstream, compared against the total emitted
+        final AtomicLong requested = new AtomicLong();
+        // Ring indexes: written by onNext and the drain loop respectively, read by the other
+        final AtomicLong producerIndex = new AtomicLong();
+        final AtomicLong consumerIndex = new AtomicLong();
+
+        Subscription upstream;
+        Throwable error;
+        volatile boolean done;
+        volatile boolean cancelled;
+        // Written before the request is added, so it is at least the time of the request the drain loop sees
+        volatile long requestedAt;
+
+        // Only accessed while draining
+        long emitted;
+        long upstreamRequested;
+        // Starts high: halving it brings it down within a few batches, growing it takes a few dozen
+        int limit;
+        // The last batch, when the downstream had to request more after it; it takes until that request
+        long awaitedAt;
+        int awaitedSize;
+
+        BatchSubscriber(Subscriber<? super List<T>> downstream, long targetNanos, int maxBatch) {
+            this.downstream = downstream;
+            this.targetNanos = targetNanos;
+            this.maxBatch = maxBatch;
+            this.limit = maxBatch;
+            int capacity = Integer.highestOneBit(2 * maxBatch - 1) << 1;
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (upstream != null) {
+                s.cancel();
+                RxJavaPlugins.onError(new IllegalStateException("Subscription already set!"));
+                return;
+            }
+            upstream = s;
+            downstream.onSubscribe(this);
+            // Makes the first request to upstream
+            drain();
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            long p = producerIndex.get();
+            if (p - consumerIndex.get() == values.length) {
+                upstream.cancel();
+                onError(new MissingBackpressureException("More values than requested"));
+                return;
+            }
+            int slot = (int) p & mask;
+            values[slot] = t;
+            producerIndex.lazySet(p + 1);
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            error = e;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            requestedAt = System.nanoTime();
+            for (;;) {
+                long r = requested.get();
+                long u = r + n < 0 ? Long.MAX_VALUE : r + n;
+                if (requested.compareAndSet(r, u)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                if (getAndIncrement() == 0) {
+                    clear();
+                }
+            }
+        }
+
+        private void clear() {
+            long c = consumerIndex.get();
+            long p = producerIndex.get();
+            for (; c != p; c++) {
+                values[(int) c & mask] = null;
+            }
+            consumerIndex.lazySet(c);
+        }
+
+        private void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                long r = requested.get();
+                long e = emitted;
+                if (awaitedAt != 0 && e != r) {
+                    adapt(awaitedSize, requestedAt - awaitedAt);
+                    awaitedAt = 0;
+                }
+                for (;;) {
+                    if (cancelled) {
+                        clear();
+                        return;
+                    }
+                    boolean d = done;
+                    if (d && error != null) {
+                        // Like buffer, the values that were not emitted yet are dropped
+                        clear();
+                        downstream.onError(error);
+                        // The wip counter stays above zero, so the loop never runs again
+                        return;
+                    }
+                    long c = consumerIndex.get();
+                    long available = producerIndex.get() - c;
+                    if (available == 0) {
+                        if (d) {
+                            downstream.onComplete();
+                            return;
+                        }
+                        break;
+                    }
+                    if (e == r) {
+                        break;
+                    }
+                    int n = (int) Math.min(available, limit);
+                    List<T> batch = take(c, n);
+                    long start = System.nanoTime();
+                    downstream.onNext(batch);
+                    e++;
+                    if (e != requested.get()) {
+                        adapt(n, System.nanoTime() - start);
+                    } else {
+                        awaitedAt = start;
+                        awaitedSize = n;
+                    }
+                    requestUpstream();
+                }
+                emitted = e;
+                requestUpstream();
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T> take(long c, int n) {
+            int slot = (int) c & mask;
+            List<T> batch = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                batch.add((T) values[slot]);
+                values[slot] = null;
+                slot = (slot + 1) & mask;
+            }
+            consumerIndex.lazySet(c + n);
+            return batch;
+        }
+
+        /**
+         * Adapts the limit to the time the downstream took for a batch of {@code n} values.
+         */
+        private void adapt(int n, long tookNanos) {
+            if (tookNanos > targetNanos) {
+                limit = Math.max(1, limit >> 1);
+            } else if (n == limit && tookNanos <= targetNanos >> 1) {
+                limit = Math.min(maxBatch, limit + Math.max(1, limit >> 2));
+            }
+        }
+
+        /**
+         * Keeps twice the limit requested from upstream and not yet emitted.
+         */
+        private void requestUpstream() {
+            if (done) {
+                return;
+            }
+            long outstanding = upstreamRequested - consumerIndex.get();
+            long n = 2L * limit - outstanding;
+            if (n > 0) {
+                upstreamRequested += n;
+                upstream.request(n);
+            }
+        }
+    }
+}
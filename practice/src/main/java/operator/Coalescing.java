@@ -0,0 +1,348 @@
+package operator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * {@code debounce} and {@code throttleLast} that do not schedule anything per value, and keep no timer while idle.
+ * <pre>
+ * clicks.compose(Coalescing.debounce(300, TimeUnit.MILLISECONDS))
+ * readings.compose(Coalescing.throttleLast(1, TimeUnit.SECONDS))
+ * </pre>
+ * {@code debounce} disposes its timer and schedules a new one for every value. Here a value only
+ * moves a deadline: a subscription has at most one timer, armed by the first value after an idle period.
+ * When it fires before the deadline, because values kept coming, it is armed again for the rest of the time,
+ * so a burst of values costs one timer per {@code timeout} instead of one per value.
+ * <ul>
+ * <li>{@link #debounce} emits a value once {@code timeout} has passed without another one,
+ * and the last value when the source completes</li>
+ * <li>{@link #throttleLast} emits the latest value at the end of every {@code period} since the subscription,
+ * like {@code sample}, but its timer only runs while values arrive, so idle subscriptions cost nothing.
+ * {@code sample} does not schedule per value either, and storing a value is cheaper there, as it does not
+ * have to be seen by a timer that is about to disarm; so this pays off when there are many subscriptions
+ * that are often idle, rather than for one busy source</li>
+ * <li>{@link #throttleFirst} is the built-in one: it only schedules a timer for the values it lets through,
+ * once per {@code window}, and checks a flag for the others, which is cheaper than reading the clock</li>
+ * </ul>
+ * Values that were waiting for their time are emitted on the scheduler's thread, and the terminal event,
+ * with the last value of {@code debounce}, on the thread of the source.
+ */
+public final class Coalescing {
+
+    private Coalescing() {
+    }
+
+    public static <T> ObservableTransformer<T, T> debounce(long timeout, TimeUnit unit) {
+        return debounce(timeout, unit, Schedulers.computation());
+    }
+
+    public static <T> ObservableTransformer<T, T> debounce(long timeout, TimeUnit unit, Scheduler scheduler) {
+        long timeoutNanos = toNanos("timeout", timeout, unit);
+        return upstream -> new TimerObservable<>(upstream, timeoutNanos, scheduler, true);
+    }
+
+    public static <T> ObservableTransformer<T, T> throttleLast(long period, TimeUnit unit) {
+        return throttleLast(period, unit, Schedulers.computation());
+    }
+
+    public static <T> ObservableTransformer<T, T> throttleLast(long period, TimeUnit unit, Scheduler scheduler) {
+        long periodNanos = toNanos("period", period, unit);
+        return upstream -> new TimerObservable<>(upstream, periodNanos, scheduler, false);
+    }
+
+    public static <T> ObservableTransformer<T, T> throttleFirst(long window, TimeUnit unit) {
+        return throttleFirst(window, unit, Schedulers.computation());
+    }
+
+    public static <T> ObservableTransformer<T, T> throttleFirst(long window, TimeUnit unit, Scheduler scheduler) {
+        toNanos("window", window, unit);
+        return upstream -> upstream.throttleFirst(window, unit, scheduler);
+    }
+
+    private static long toNanos(String name, long time, TimeUnit unit) {
+        if (time <= 0) {
+            throw new IllegalArgumentException(name + " > 0 required but it was " + time);
+        }
+        return unit.toNanos(time);
+    }
+
+    static final class TimerObservable<T> extends Observable<T> {
+        final ObservableSource<T> source;
+        final long timeNanos;
+        final Scheduler scheduler;
+        final boolean debounce;
+
+        TimerObservable(ObservableSource<T> source, long timeNanos, Scheduler scheduler, boolean debounce) {
+            this.source = source;
+            this.timeNanos = timeNanos;
+            this.scheduler = scheduler;
+            this.debounce = debounce;
+        }
+
+        @Override
+        protected void subscribeActual(Observer<? super T> observer) {
+            Scheduler.Worker worker = scheduler.createWorker();
+            if (debounce) {
+                source.subscribe(new DebounceObserver<>(observer, worker, timeNanos));
+            } else {
+                source.subscribe(new ThrottleLastObserver<>(observer, worker, timeNanos));
+            }
+        }
+    }
+
+    /**
+     * Holds the latest value for a timer that is armed at most once at a time. The timer and the terminal
+     * events of the source go through the drain loop of the wip counter it extends, so the value is only
+     * taken and emitted in the loop.
+     */
+    abstract static class TimerObserver<T> extends AtomicInteger implements Observer<T>, Disposable, Runnable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super T> downstream;
+        final Scheduler.Worker worker;
+        final long timeNanos;
+        final AtomicReference<T> latest = new AtomicReference<>();
+        final AtomicBoolean armed = new AtomicBoolean();
+        Disposable upstream;
+        volatile boolean fired;
+        volatile boolean done;
+        volatile boolean disposed;
+        Throwable error;
+
+        TimerObserver(Observer<? super T> downstream, Scheduler.Worker worker, long timeNanos) {
+            this.downstream = downstream;
+            this.worker = worker;
+            this.timeNanos = timeNanos;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (upstream != null) {
+                d.dispose();
+                RxJavaPlugins.onError(new IllegalStateException("Disposable already set!"));
+                return;
+            }
+            upstream = d;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            latest.set(t);
+            if (!armed.get() && armed.compareAndSet(false, true)) {
+                worker.schedule(this, delay(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            error = e;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void run() {
+            fired = true;
+            drain();
+        }
+
+        /**
+         * @return the time from now to when the timer should fire for the latest value
+         */
+        abstract long delay();
+
+        /**
+         * Called from the drain loop when the timer fires, and responsible for arming it again if needed.
+         */
+        abstract void fire();
+
+        /**
+         * @return the value to emit before completing, if any
+         */
+        abstract T last();
+
+        /**
+         * Disarms the timer, unless a value arrived meanwhile: {@link #onNext} only arms it if it was disarmed,
+         * so the value is checked after disarming.
+         */
+        final void disarm() {
+            armed.set(false);
+            if (latest.get() != null && armed.compareAndSet(false, true)) {
+                worker.schedule(this, delay(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        final void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                if (disposed) {
+                    latest.lazySet(null);
+                    return;
+                }
+                if (fired) {
+                    fired = false;
+                    fire();
+                }
+                if (done) {
+                    Throwable e = error;
+                    if (e != null) {
+                        latest.lazySet(null);
+                        downstream.onError(e);
+                    } else {
+                        T v = last();
+                        if (v != null) {
+                            downstream.onNext(v);
+                        }
+                        downstream.onComplete();
+                    }
+                    worker.dispose();
+                    // The wip counter stays above zero, so the loop never runs again
+                    return;
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                upstream.dispose();
+                worker.dispose();
+                if (getAndIncrement() == 0) {
+                    latest.lazySet(null);
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    static final class DebounceObserver<T> extends TimerObserver<T> {
+        private static final long serialVersionUID = 1L;
+
+        // When the latest value is due, on the worker's clock; written before the value itself
+        volatile long deadline;
+
+        DebounceObserver(Observer<? super T> downstream, Scheduler.Worker worker, long timeoutNanos) {
+            super(downstream, worker, timeoutNanos);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!done) {
+                deadline = worker.now(TimeUnit.NANOSECONDS) + timeNanos;
+            }
+            super.onNext(t);
+        }
+
+        @Override
+        long delay() {
+            return Math.max(0, deadline - worker.now(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        void fire() {
+            T v = latest.getAndSet(null);
+            if (v != null) {
+                // Read after taking the value, so it is at least the deadline of that value
+                long wait = deadline - worker.now(TimeUnit.NANOSECONDS);
+                if (wait > 0) {
+                    // Fired early: put the value back, unless a newer one replaced it, and stay armed
+                    latest.compareAndSet(null, v);
+                    worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                downstream.onNext(v);
+            }
+            disarm();
+        }
+
+        @Override
+        T last() {
+            return latest.getAndSet(null);
+        }
+    }
+
+    static final class ThrottleLastObserver<T> extends TimerObserver<T> {
+        private static final long serialVersionUID = 1L;
+
+        // The periods are counted from the subscription, like those of sample
+        final long start;
+        // The end of the period the timer is armed for
+        volatile long due;
+
+        ThrottleLastObserver(Observer<? super T> downstream, Scheduler.Worker worker, long periodNanos) {
+            super(downstream, worker, periodNanos);
+            this.start = worker.now(TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        long delay() {
+            long now = worker.now(TimeUnit.NANOSECONDS);
+            due = now + timeNanos - (now - start) % timeNanos;
+            return due - now;
+        }
+
+        @Override
+        void fire() {
+            long wait = due - worker.now(TimeUnit.NANOSECONDS);
+            if (wait > 0) {
+                worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+            T v = latest.getAndSet(null);
+            if (v != null) {
+                downstream.onNext(v);
+                // Values are still arriving, so wait for the end of the next period
+                worker.schedule(this, delay(), TimeUnit.NANOSECONDS);
+                return;
+            }
+            disarm();
+        }
+
+        @Override
+        T last() {
+            // Like sample, the value that arrived after the end of the last period is dropped
+            latest.lazySet(null);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package operator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+import org.reactivestreams.Subscription;
+
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Function;
+import io.reactivex.parallel.ParallelFlowable;
+import io.reactivex.plugins.RxJavaPlugins;
+import util.LongObjectMap;
+
+/**
+ * {@link Observable#toMap} and {@link Observable#toMultimap} for values that arrive on several threads at once.
+ * <pre>
+ * ConcurrentMaps.toConcurrentMultimap(partitions, record -&gt; record.key, record -&gt; record.value, 1 &lt;&lt; 20)
+ * </pre>
+ * takes the sources that would otherwise be merged, or the rails of a {@link ParallelFlowable},
+ * and subscribes to each of them directly. Every thread accumulates into its own partial map,
+ * without locks, and the partial maps are merged into the largest one when all sources have completed.
+ * <p>
+ * {@code expectedKeys} presizes each partial map, so it should be the number of distinct keys one thread
+ * is expected to see. When the same key arrives on several threads, the value kept by a map is
+ * one of the last values of each thread, and the values of a multimap are grouped by thread.
+ * The long-key variants accumulate into {@link LongObjectMap}s, without boxing the keys.
+ */
+public final class ConcurrentMaps {
+
+    static final Disposable DISPOSED = Disposables.disposed();
+
+    static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private ConcurrentMaps() {
+    }
+
+    public static <T, K, V> Single<Map<K, V>> toConcurrentMap(Iterable<? extends ObservableSource<? extends T>> sources,
+            Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromSources<>(sources, new ToMap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, K, V> Single<Map<K, V>> toConcurrentMap(ParallelFlowable<? extends T> rails,
+            Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromRails<>(rails, new ToMap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, K, V> Single<Map<K, List<V>>> toConcurrentMultimap(Iterable<? extends ObservableSource<? extends T>> sources,
+            Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromSources<>(sources, new ToMultimap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, K, V> Single<Map<K, List<V>>> toConcurrentMultimap(ParallelFlowable<? extends T> rails,
+            Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromRails<>(rails, new ToMultimap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, V> Single<LongObjectMap<V>> toConcurrentLongMap(Iterable<? extends ObservableSource<? extends T>> sources,
+            ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromSources<>(sources, new ToLongMap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, V> Single<LongObjectMap<V>> toConcurrentLongMap(ParallelFlowable<? extends T> rails,
+            ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromRails<>(rails, new ToLongMap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, V> Single<LongObjectMap<List<V>>> toConcurrentLongMultimap(Iterable<? extends ObservableSource<? extends T>> sources,
+            ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromSources<>(sources, new ToLongMultimap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    public static <T, V> Single<LongObjectMap<List<V>>> toConcurrentLongMultimap(ParallelFlowable<? extends T> rails,
+            ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+        return new FromRails<>(rails, new ToLongMultimap<>(keySelector, valueSelector, expectedKeys));
+    }
+
+    /**
+     * How partial results of type {@code A} are built and merged into an {@code A}.
+     */
+    abstract static class Aggregation<T, A> {
+        final int expectedKeys;
+
+        Aggregation(int expectedKeys) {
+            if (expectedKeys < 0) {
+                throw new IllegalArgumentException("expectedKeys >= 0 required but it was " + expectedKeys);
+            }
+            this.expectedKeys = expectedKeys;
+        }
+
+        abstract A create();
+
+        abstract void add(A partial, T value) throws Exception;
+
+        abstract int size(A partial);
+
+        abstract void addAll(A target, A partial);
+
+        A merge(List<A> partials) {
+            if (partials.isEmpty()) {
+                return create();
+            }
+            A target = partials.get(0);
+            for (A partial : partials) {
+                if (size(partial) > size(target)) {
+                    target = partial;
+                }
+            }
+            for (A partial : partials) {
+                if (partial != target) {
+                    addAll(target, partial);
+                }
+            }
+            return target;
+        }
+    }
+
+    static <K> K requireKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("The keySelector returned a null key");
+        }
+        return key;
+    }
+
+    static <V> V requireValue(V value) {
+        if (value == null) {
+            throw new NullPointerException("The valueSelector returned a null value");
+        }
+        return value;
+    }
+
+    static final class ToMap<T, K, V> extends Aggregation<T, Map<K, V>> {
+        final Function<? super T, ? extends K> keySelector;
+        final Function<? super T, ? extends V> valueSelector;
+
+        ToMap(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+            super(expectedKeys);
+            this.keySelector = keySelector;
+            this.valueSelector = valueSelector;
+        }
+
+        @Override
+        Map<K, V> create() {
+            return new HashMap<>((int) (expectedKeys / 0.75f) + 1);
+        }
+
+        @Override
+        void add(Map<K, V> partial, T value) throws Exception {
+            partial.put(requireKey(keySelector.apply(value)), requireValue(valueSelector.apply(value)));
+        }
+
+        @Override
+        int size(Map<K, V> partial) {
+            return partial.size();
+        }
+
+        @Override
+        void addAll(Map<K, V> target, Map<K, V> partial) {
+            target.putAll(partial);
+        }
+    }
+
+    static final class ToMultimap<T, K, V> extends Aggregation<T, Map<K, List<V>>> {
+        final Function<? super T, ? extends K> keySelector;
+        final Function<? super T, ? extends V> valueSelector;
+
+        ToMultimap(Function<? super T, ? extends K> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+            super(expectedKeys);
+            this.keySelector = keySelector;
+            this.valueSelector = valueSelector;
+        }
+
+        @Override
+        Map<K, List<V>> create() {
+            return new HashMap<>((int) (expectedKeys / 0.75f) + 1);
+        }
+
+        @Override
+        void add(Map<K, List<V>> partial, T value) throws Exception {
+            K key = requireKey(keySelector.apply(value));
+            V v = requireValue(valueSelector.apply(value));
+            List<V> list = partial.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                partial.put(key, list);
+            }
+            list.add(v);
+        }
+
+        @Override
+        int size(Map<K, List<V>> partial) {
+            return partial.size();
+        }
+
+        @Override
+        void addAll(Map<K, List<V>> target, Map<K, List<V>> partial) {
+            for (Map.Entry<K, List<V>> entry : partial.entrySet()) {
+                List<V> list = target.putIfAbsent(entry.getKey(), entry.getValue());
+                if (list != null) {
+                    list.addAll(entry.getValue());
+                }
+            }
+        }
+    }
+
+    static final class ToLongMap<T, V> extends Aggregation<T, LongObjectMap<V>> {
+        final ToLongFunction<? super T> keySelector;
+        final Function<? super T, ? extends V> valueSelector;
+
+        ToLongMap(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+            super(expectedKeys);
+            this.keySelector = keySelector;
+            this.valueSelector = valueSelector;
+        }
+
+        @Override
+        LongObjectMap<V> create() {
+            return new LongObjectMap<>(expectedKeys);
+        }
+
+        @Override
+        void add(LongObjectMap<V> partial, T value) throws Exception {
+            partial.put(keySelector.applyAsLong(value), requireValue(valueSelector.apply(value)));
+        }
+
+        @Override
+        int size(LongObjectMap<V> partial) {
+            return partial.size();
+        }
+
+        @Override
+        void addAll(LongObjectMap<V> target, LongObjectMap<V> partial) {
+            partial.forEach(target::put);
+        }
+    }
+
+    static final class ToLongMultimap<T, V> extends Aggregation<T, LongObjectMap<List<V>>> {
+        final ToLongFunction<? super T> keySelector;
+        final Function<? super T, ? extends V> valueSelector;
+
+        ToLongMultimap(ToLongFunction<? super T> keySelector, Function<? super T, ? extends V> valueSelector, int expectedKeys) {
+            super(expectedKeys);
+            this.keySelector = keySelector;
+            this.valueSelector = valueSelector;
+        }
+
+        @Override
+        LongObjectMap<List<V>> create() {
+            return new LongObjectMap<>(expectedKeys);
+        }
+
+        @Override
+        void add(LongObjectMap<List<V>> partial, T value) throws Exception {
+            long key = keySelector.applyAsLong(value);
+            V v = requireValue(valueSelector.apply(value));
+            List<V> list = partial.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                partial.put(key, list);
+            }
+            list.add(v);
+        }
+
+        @Override
+        int size(LongObjectMap<List<V>> partial) {
+            return partial.size();
+        }
+
+        @Override
+        void addAll(LongObjectMap<List<V>> target, LongObjectMap<List<V>> partial) {
+            partial.forEach((key, values) -> {
+                List<V> list = target.get(key);
+                if (list == null) {
+                    target.put(key, values);
+                } else {
+                    list.addAll(values);
+                }
+            });
+        }
+    }
+
+    static final class FromSources<T, A> extends Single<A> {
+        final Iterable<? extends ObservableSource<? extends T>> sources;
+        final Aggregation<T, A> aggregation;
+
+        FromSources(Iterable<? extends ObservableSource<? extends T>> sources, Aggregation<T, A> aggregation) {
+            this.sources = sources;
+            this.aggregation = aggregation;
+        }
+
+        @Override
+        protected void subscribeActual(SingleObserver<? super A> observer) {
+            List<ObservableSource<? extends T>> list = new ArrayList<>();
+            try {
+                for (ObservableSource<? extends T> source : sources) {
+                    if (source == null) {
+                        throw new NullPointerException("One of the sources is null");
+                    }
+                    list.add(source);
+                }
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                observer.onSubscribe(Disposables.disposed());
+                observer.onError(e);
+                return;
+            }
+            Collector<T, A> collector = new Collector<>(observer, aggregation, list.size());
+            SourceObserver<T>[] inners = collector.sourceObservers();
+            observer.onSubscribe(collector);
+            if (list.isEmpty()) {
+                collector.complete();
+                return;
+            }
+            for (int i = 0; i < inners.length && !collector.isDisposed(); i++) {
+                list.get(i).subscribe(inners[i]);
+            }
+        }
+    }
+
+    static final class FromRails<T, A> extends Single<A> {
+        final ParallelFlowable<? extends T> rails;
+        final Aggregation<T, A> aggregation;
+
+        FromRails(ParallelFlowable<? extends T> rails, Aggregation<T, A> aggregation) {
+            this.rails = rails;
+            this.aggregation = aggregation;
+        }
+
+        @Override
+        protected void subscribeActual(SingleObserver<? super A> observer) {
+            Collector<T, A> collector = new Collector<>(observer, aggregation, rails.parallelism());
+            RailSubscriber<T>[] inners = collector.railSubscribers();
+            observer.onSubscribe(collector);
+            rails.subscribe(inners);
+        }
+    }
+
+    /**
+     * Holds one partial result per thread, and completes once every source has.
+     */
+    static final class Collector<T, A> extends AtomicInteger implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final SingleObserver<? super A> downstream;
+        final Aggregation<T, A> aggregation;
+        final Map<Thread, A> partials = new ConcurrentHashMap<>();
+        final AtomicBoolean once = new AtomicBoolean();
+        final int count;
+        Disposable[] inners;
+        volatile boolean disposed;
+
+        Collector(SingleObserver<? super A> downstream, Aggregation<T, A> aggregation, int count) {
+            super(count);
+            this.downstream = downstream;
+            this.aggregation = aggregation;
+            this.count = count;
+        }
+
+        @SuppressWarnings("unchecked")
+        SourceObserver<T>[] sourceObservers() {
+            SourceObserver<T>[] observers = new SourceObserver[count];
+            for (int i = 0; i < count; i++) {
+                observers[i] = new SourceObserver<>(this);
+            }
+            inners = observers;
+            return observers;
+        }
+
+        @SuppressWarnings("unchecked")
+        RailSubscriber<T>[] railSubscribers() {
+            RailSubscriber<T>[] subscribers = new RailSubscriber[count];
+            for (int i = 0; i < count; i++) {
+                subscribers[i] = new RailSubscriber<>(this);
+            }
+            inners = subscribers;
+            return subscribers;
+        }
+
+        A partial(Thread thread) {
+            // Only this thread ever adds to the partial it gets
+            return partials.computeIfAbsent(thread, t -> aggregation.create());
+        }
+
+        void innerComplete() {
+            if (decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        void complete() {
+            if (!once.compareAndSet(false, true) || disposed) {
+                return;
+            }
+            A result;
+            try {
+                result = aggregation.merge(new ArrayList<>(partials.values()));
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                downstream.onError(e);
+                return;
+            }
+            partials.clear();
+            downstream.onSuccess(result);
+        }
+
+        void innerError(Throwable e) {
+            if (!once.compareAndSet(false, true)) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            disposeInners();
+            partials.clear();
+            downstream.onError(e);
+        }
+
+        void disposeInners() {
+            for (Disposable inner : inners) {
+                inner.dispose();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                disposeInners();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    static final class SourceObserver<T> extends AtomicReference<Disposable> implements Observer<T>, Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Collector<T, ?> parent;
+        // The partial of the thread that delivered the previous value
+        Thread thread;
+        Object partial;
+        boolean done;
+
+        SourceObserver(Collector<T, ?> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (!compareAndSet(null, d)) {
+                d.dispose();
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            Thread current = Thread.currentThread();
+            if (current != thread) {
+                thread = current;
+                partial = parent.partial(current);
+            }
+            try {
+                ((Aggregation) parent.aggregation).add(partial, t);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                dispose();
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            parent.innerError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            parent.innerComplete();
+        }
+
+        @Override
+        public void dispose() {
+            Disposable d = getAndSet(DISPOSED);
+            if (d != null && d != DISPOSED) {
+                d.dispose();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() == DISPOSED;
+        }
+    }
+
+    static final class RailSubscriber<T> extends AtomicReference<Subscription> implements FlowableSubscriber<T>, Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Collector<T, ?> parent;
+        Thread thread;
+        Object partial;
+        boolean done;
+
+        RailSubscriber(Collector<T, ?> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (compareAndSet(null, s)) {
+                s.request(Long.MAX_VALUE);
+            } else {
+                s.cancel();
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            Thread current = Thread.currentThread();
+            if (current != thread) {
+                thread = current;
+                partial = parent.partial(current);
+            }
+            try {
+                ((Aggregation) parent.aggregation).add(partial, t);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                dispose();
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            parent.innerError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            parent.innerComplete();
+        }
+
+        @Override
+        public void dispose() {
+            Subscription s = getAndSet(CANCELLED);
+            if (s != null && s != CANCELLED) {
+                s.cancel();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() == CANCELLED;
+        }
+    }
+}
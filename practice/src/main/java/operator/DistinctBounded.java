@@ -0,0 +1,205 @@
+package operator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import util.BloomFilter;
+import util.LongHashSet;
+
+/**
+ * Variants of {@link Observable#distinct(Function)} that use constant memory.
+ * <pre>
+ * events.compose(DistinctBounded.distinctLong(Event::getId, 1_000_000))
+ * </pre>
+ * {@code distinct} remembers every key it has ever seen, which on an endless stream of ids
+ * eventually runs out of memory. These forget keys instead, so a value is only dropped
+ * if its key was seen recently:
+ * <ul>
+ * <li>{@link #distinctLong} keeps the last {@code maxKeys} distinct keys in a primitive set, with no boxing</li>
+ * <li>{@link #distinctLru} keeps the {@code maxKeys} most recently seen keys</li>
+ * <li>{@link #distinctWithin} keeps the keys first seen within a time window</li>
+ * <li>{@link #distinctApproximate} keeps two generations of Bloom filters, and also drops
+ * a small fraction of values whose key is new</li>
+ * </ul>
+ * Each subscription gets its own state.
+ */
+public final class DistinctBounded {
+
+    private DistinctBounded() {
+    }
+
+    /**
+     * Drops values whose key is among the last {@code maxKeys} distinct keys.
+     * When full, the key that was first seen longest ago is forgotten.
+     */
+    public static <T> ObservableTransformer<T, T> distinctLong(ToLongFunction<? super T> keySelector, int maxKeys) {
+        checkMaxKeys(maxKeys);
+        return upstream -> Observable.defer(() -> upstream.filter(new LongFifo<>(keySelector, maxKeys)));
+    }
+
+    /**
+     * Drops values whose key is among the {@code maxKeys} most recently seen keys,
+     * where seeing a key again, even in a dropped value, makes it recent.
+     */
+    public static <T, K> ObservableTransformer<T, T> distinctLru(Function<? super T, K> keySelector, int maxKeys) {
+        checkMaxKeys(maxKeys);
+        return upstream -> Observable.defer(() -> upstream.filter(new Lru<>(keySelector, maxKeys)));
+    }
+
+    /**
+     * Drops values whose key was first seen less than {@code window} ago, according to {@code scheduler}.
+     * Memory is bounded by the number of distinct keys in a window.
+     * Times are kept in nanoseconds, so windows under a millisecond are kept as they are; how fine they are
+     * depends on the scheduler's clock, which for the default {@link Scheduler#now} ticks every millisecond.
+     */
+    public static <T, K> ObservableTransformer<T, T> distinctWithin(Function<? super T, K> keySelector, long window, TimeUnit unit, Scheduler scheduler) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window > 0 required but it was " + window);
+        }
+        long windowNanos = unit.toNanos(window);
+        return upstream -> Observable.defer(() -> upstream.filter(new Within<>(keySelector, windowNanos, scheduler)));
+    }
+
+    /**
+     * Drops values whose key is probably among the last {@code expectedKeys} to {@code 2 * expectedKeys} distinct keys.
+     * A new key is mistaken for a seen one with a probability of about {@code 2 * falsePositiveRate},
+     * in which case its value is dropped.
+     * Each generation takes {@code 1.44 * log2(1 / falsePositiveRate)} bits per expected key, rounded up to a power of two.
+     */
+    public static <T> ObservableTransformer<T, T> distinctApproximate(ToLongFunction<? super T> keySelector, int expectedKeys, double falsePositiveRate) {
+        // Validates the arguments before any subscription
+        new BloomFilter(expectedKeys, falsePositiveRate);
+        return upstream -> Observable.defer(() -> upstream.filter(new Approximate<>(keySelector, expectedKeys, falsePositiveRate)));
+    }
+
+    private static void checkMaxKeys(int maxKeys) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys > 0 required but it was " + maxKeys);
+        }
+    }
+
+    static final class LongFifo<T> implements Predicate<T> {
+        final ToLongFunction<? super T> keySelector;
+        final LongHashSet seen;
+        // Keys in the order they were first seen, oldest at position
+        final long[] order;
+        int position;
+
+        LongFifo(ToLongFunction<? super T> keySelector, int maxKeys) {
+            this.keySelector = keySelector;
+            this.seen = new LongHashSet(maxKeys);
+            this.order = new long[maxKeys];
+        }
+
+        @Override
+        public boolean test(T t) {
+            long key = keySelector.applyAsLong(t);
+            if (seen.contains(key)) {
+                return false;
+            }
+            if (seen.size() == order.length) {
+                seen.remove(order[position]);
+            }
+            seen.add(key);
+            order[position] = key;
+            if (++position == order.length) {
+                position = 0;
+            }
+            return true;
+        }
+    }
+
+    static final class Lru<T, K> extends LinkedHashMap<K, Boolean> implements Predicate<T> {
+        private static final long serialVersionUID = 1L;
+
+        final Function<? super T, K> keySelector;
+        final int maxKeys;
+
+        Lru(Function<? super T, K> keySelector, int maxKeys) {
+            super(16, 0.75f, true);
+            this.keySelector = keySelector;
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        public boolean test(T t) throws Exception {
+            K key = keySelector.apply(t);
+            if (key == null) {
+                throw new NullPointerException("The keySelector returned a null key");
+            }
+            return put(key, Boolean.TRUE) == null;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Boolean> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    static final class Within<T, K> implements Predicate<T> {
+        final Function<? super T, K> keySelector;
+        final long windowNanos;
+        final Scheduler scheduler;
+        // Insertion order is first-seen order, so the expired keys are always at the front
+        final LinkedHashMap<K, Long> firstSeen = new LinkedHashMap<>();
+
+        Within(Function<? super T, K> keySelector, long windowNanos, Scheduler scheduler) {
+            this.keySelector = keySelector;
+            this.windowNanos = windowNanos;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public boolean test(T t) throws Exception {
+            K key = keySelector.apply(t);
+            if (key == null) {
+                throw new NullPointerException("The keySelector returned a null key");
+            }
+            long now = scheduler.now(TimeUnit.NANOSECONDS);
+            Iterator<Long> times = firstSeen.values().iterator();
+            while (times.hasNext() && now - times.next() >= windowNanos) {
+                times.remove();
+            }
+            return firstSeen.putIfAbsent(key, now) == null;
+        }
+    }
+
+    static final class Approximate<T> implements Predicate<T> {
+        final ToLongFunction<? super T> keySelector;
+        // New keys go into current; once it is full, it becomes previous and the old previous is reused
+        BloomFilter current;
+        BloomFilter previous;
+
+        Approximate(ToLongFunction<? super T> keySelector, int expectedKeys, double falsePositiveRate) {
+            this.keySelector = keySelector;
+            this.current = new BloomFilter(expectedKeys, falsePositiveRate);
+            this.previous = new BloomFilter(expectedKeys, falsePositiveRate);
+        }
+
+        @Override
+        public boolean test(T t) {
+            long key = keySelector.applyAsLong(t);
+            if (previous.mightContain(key)) {
+                return false;
+            }
+            if (current.put(key)) {
+                return false;
+            }
+            if (current.isFull()) {
+                BloomFilter reused = previous;
+                reused.clear();
+                previous = current;
+                current = reused;
+            }
+            return true;
+        }
+    }
+}
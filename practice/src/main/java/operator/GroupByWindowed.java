@@ -0,0 +1,561 @@
+package operator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Function;
+import io.reactivex.observables.GroupedObservable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import util.LongObjectMap;
+import util.MpscLinkedQueue;
+
+/**
+ * A {@link Observable#groupBy(Function)} that does not keep every group until the source terminates.
+ * <pre>
+ * events.compose(GroupByWindowed.groupByWindowed(Event::getSession, 30, TimeUnit.SECONDS, 10_000))
+ *       .flatMap(session -&gt; session.count().toObservable())
+ * </pre>
+ * A group is completed, and forgotten, once no value has arrived for it for {@code idleTimeout},
+ * or when a new group would exceed {@code maxGroups}, in which case the least recently used one goes.
+ * A later value with the same key starts a new group, as it does after a group is disposed.
+ * <p>
+ * Idle groups are found by a timer on {@code scheduler} that ticks four times per {@code idleTimeout},
+ * so a group is completed between one and one and a quarter {@code idleTimeout} after its last value,
+ * without reading the clock per value. {@link #groupByWindowedLong} keeps the groups in a {@link LongObjectMap},
+ * boxing the key only once per group.
+ */
+public final class GroupByWindowed {
+    static final int TICKS_PER_TIMEOUT = 4;
+
+    static final Object TICK = new Object();
+
+    private GroupByWindowed() {
+    }
+
+    public static <T, K> ObservableTransformer<T, GroupedObservable<K, T>> groupByWindowed(Function<? super T, ? extends K> keySelector,
+            long idleTimeout, TimeUnit unit, int maxGroups) {
+        return groupByWindowed(keySelector, idleTimeout, unit, Schedulers.computation(), maxGroups);
+    }
+
+    public static <T, K> ObservableTransformer<T, GroupedObservable<K, T>> groupByWindowed(Function<? super T, ? extends K> keySelector,
+            long idleTimeout, TimeUnit unit, Scheduler scheduler, int maxGroups) {
+        long tick = tickNanos(idleTimeout, unit, maxGroups);
+        return upstream -> new WindowedGroupBy<>(upstream, () -> new ObjectIndex<>(keySelector), tick, scheduler, maxGroups);
+    }
+
+    public static <T> ObservableTransformer<T, GroupedObservable<Long, T>> groupByWindowedLong(ToLongFunction<? super T> keySelector,
+            long idleTimeout, TimeUnit unit, int maxGroups) {
+        return groupByWindowedLong(keySelector, idleTimeout, unit, Schedulers.computation(), maxGroups);
+    }
+
+    public static <T> ObservableTransformer<T, GroupedObservable<Long, T>> groupByWindowedLong(ToLongFunction<? super T> keySelector,
+            long idleTimeout, TimeUnit unit, Scheduler scheduler, int maxGroups) {
+        long tick = tickNanos(idleTimeout, unit, maxGroups);
+        return upstream -> new WindowedGroupBy<>(upstream, () -> new LongIndex<>(keySelector), tick, scheduler, maxGroups);
+    }
+
+    private static long tickNanos(long idleTimeout, TimeUnit unit, int maxGroups) {
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("idleTimeout > 0 required but it was " + idleTimeout);
+        }
+        if (maxGroups <= 0) {
+            throw new IllegalArgumentException("maxGroups > 0 required but it was " + maxGroups);
+        }
+        return Math.max(1, unit.toNanos(idleTimeout) / TICKS_PER_TIMEOUT);
+    }
+
+    interface IndexFactory<T, K> {
+        Index<T, K> create();
+    }
+
+    /**
+     * Finds the live group of a value. Only used from the drain loop.
+     */
+    abstract static class Index<T, K> {
+        /**
+         * @return the group of the value's key, or null; the key is remembered for {@link #create}
+         */
+        abstract Group<K, T> lookup(T value) throws Exception;
+
+        abstract Group<K, T> create(GroupByObserver<T, K> parent);
+
+        abstract void remove(Group<K, T> group);
+
+        abstract void clear();
+    }
+
+    static final class ObjectIndex<T, K> extends Index<T, K> {
+        final Function<? super T, ? extends K> keySelector;
+        final Map<K, Group<K, T>> groups = new HashMap<>();
+        K key;
+
+        ObjectIndex(Function<? super T, ? extends K> keySelector) {
+            this.keySelector = keySelector;
+        }
+
+        @Override
+        Group<K, T> lookup(T value) throws Exception {
+            K k = keySelector.apply(value);
+            if (k == null) {
+                throw new NullPointerException("The keySelector returned a null key");
+            }
+            key = k;
+            return groups.get(k);
+        }
+
+        @Override
+        Group<K, T> create(GroupByObserver<T, K> parent) {
+            Group<K, T> group = new Group<>(key, 0L, parent);
+            groups.put(key, group);
+            return group;
+        }
+
+        @Override
+        void remove(Group<K, T> group) {
+            groups.remove(group.getKey());
+        }
+
+        @Override
+        void clear() {
+            groups.clear();
+        }
+    }
+
+    static final class LongIndex<T> extends Index<T, Long> {
+        final ToLongFunction<? super T> keySelector;
+        final LongObjectMap<Group<Long, T>> groups = new LongObjectMap<>();
+        long key;
+
+        LongIndex(ToLongFunction<? super T> keySelector) {
+            this.keySelector = keySelector;
+        }
+
+        @Override
+        Group<Long, T> lookup(T value) {
+            key = keySelector.applyAsLong(value);
+            return groups.get(key);
+        }
+
+        @Override
+        Group<Long, T> create(GroupByObserver<T, Long> parent) {
+            Group<Long, T> group = new Group<>(key, key, parent);
+            groups.put(key, group);
+            return group;
+        }
+
+        @Override
+        void remove(Group<Long, T> group) {
+            groups.remove(group.longKey);
+        }
+
+        @Override
+        void clear() {
+            groups.clear();
+        }
+    }
+
+    static final class WindowedGroupBy<T, K> extends Observable<GroupedObservable<K, T>> {
+        final ObservableSource<T> source;
+        final IndexFactory<T, K> indexFactory;
+        final long tickNanos;
+        final Scheduler scheduler;
+        final int maxGroups;
+
+        WindowedGroupBy(ObservableSource<T> source, IndexFactory<T, K> indexFactory, long tickNanos, Scheduler scheduler, int maxGroups) {
+            this.source = source;
+            this.indexFactory = indexFactory;
+            this.tickNanos = tickNanos;
+            this.scheduler = scheduler;
+            this.maxGroups = maxGroups;
+        }
+
+        @Override
+        protected void subscribeActual(Observer<? super GroupedObservable<K, T>> observer) {
+            source.subscribe(new GroupByObserver<>(observer, indexFactory.create(), this));
+        }
+    }
+
+    static final class Terminal {
+        final Throwable error;
+
+        Terminal(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Serializes values and timer ticks with the wip counter it extends, and keeps the live groups
+     * in a list from least to most recently used.
+     */
+    static final class GroupByObserver<T, K> extends AtomicInteger implements Observer<T>, Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super GroupedObservable<K, T>> downstream;
+        final Index<T, K> index;
+        final long tickNanos;
+        final Scheduler scheduler;
+        final int maxGroups;
+        final MpscLinkedQueue<Object> queue = new MpscLinkedQueue<>();
+        // The groups plus one for the downstream; the upstream is disposed when nobody is left
+        final AtomicInteger active = new AtomicInteger(1);
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Disposable upstream;
+        Disposable ticker;
+
+        // Only accessed from the drain loop
+        Group<K, T> leastRecent;
+        Group<K, T> mostRecent;
+        int size;
+        long ticks;
+        boolean done;
+
+        GroupByObserver(Observer<? super GroupedObservable<K, T>> downstream, Index<T, K> index, WindowedGroupBy<T, K> parent) {
+            this.downstream = downstream;
+            this.index = index;
+            this.tickNanos = parent.tickNanos;
+            this.scheduler = parent.scheduler;
+            this.maxGroups = parent.maxGroups;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (upstream != null) {
+                d.dispose();
+                RxJavaPlugins.onError(new IllegalStateException("Disposable already set!"));
+                return;
+            }
+            upstream = d;
+            ticker = scheduler.schedulePeriodicallyDirect(() -> signal(TICK), tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            signal(t);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            signal(new Terminal(e));
+        }
+
+        @Override
+        public void onComplete() {
+            signal(new Terminal(null));
+        }
+
+        void signal(Object o) {
+            if (get() == 0 && compareAndSet(0, 1)) {
+                process(o);
+                if (decrementAndGet() == 0) {
+                    return;
+                }
+            } else {
+                queue.offer(o);
+                if (getAndIncrement() != 0) {
+                    return;
+                }
+            }
+            int missed = 1;
+            for (;;) {
+                Object next;
+                while ((next = queue.poll()) != null) {
+                    process(next);
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void process(Object o) {
+            if (done) {
+                if (o instanceof Terminal && ((Terminal) o).error != null) {
+                    RxJavaPlugins.onError(((Terminal) o).error);
+                }
+                return;
+            }
+            if (o == TICK) {
+                evictIdle();
+            } else if (o instanceof Terminal) {
+                terminate(((Terminal) o).error);
+            } else {
+                value((T) o);
+            }
+        }
+
+        private void value(T t) {
+            Group<K, T> group;
+            try {
+                group = index.lookup(t);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                upstream.dispose();
+                terminate(e);
+                return;
+            }
+            if (group != null && group.disposed) {
+                evict(group);
+                group = null;
+            }
+            if (group == null) {
+                if (cancelled.get()) {
+                    return;
+                }
+                if (size == maxGroups) {
+                    evict(leastRecent);
+                }
+                group = index.create(this);
+                active.getAndIncrement();
+                link(group);
+                downstream.onNext(group);
+            } else if (group != mostRecent) {
+                unlink(group);
+                link(group);
+            }
+            group.lastTick = ticks;
+            group.onNext(t);
+        }
+
+        private void evictIdle() {
+            ticks++;
+            // The list is in order of use, so the idle groups are all at the front
+            Group<K, T> group = leastRecent;
+            while (group != null && ticks - group.lastTick > TICKS_PER_TIMEOUT) {
+                Group<K, T> next = group.next;
+                evict(group);
+                group = next;
+            }
+        }
+
+        private void evict(Group<K, T> group) {
+            unlink(group);
+            index.remove(group);
+            group.onComplete();
+        }
+
+        private void terminate(Throwable error) {
+            done = true;
+            ticker.dispose();
+            for (Group<K, T> group = leastRecent; group != null; group = group.next) {
+                if (error != null) {
+                    group.onError(error);
+                } else {
+                    group.onComplete();
+                }
+            }
+            leastRecent = null;
+            mostRecent = null;
+            size = 0;
+            index.clear();
+            if (error != null) {
+                downstream.onError(error);
+            } else {
+                downstream.onComplete();
+            }
+        }
+
+        private void link(Group<K, T> group) {
+            group.previous = mostRecent;
+            group.next = null;
+            if (mostRecent != null) {
+                mostRecent.next = group;
+            } else {
+                leastRecent = group;
+            }
+            mostRecent = group;
+            size++;
+        }
+
+        private void unlink(Group<K, T> group) {
+            if (group.previous != null) {
+                group.previous.next = group.next;
+            } else {
+                leastRecent = group.next;
+            }
+            if (group.next != null) {
+                group.next.previous = group.previous;
+            } else {
+                mostRecent = group.previous;
+            }
+            group.previous = null;
+            group.next = null;
+            size--;
+        }
+
+        void release() {
+            if (active.decrementAndGet() == 0) {
+                upstream.dispose();
+                ticker.dispose();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (cancelled.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return cancelled.get();
+        }
+    }
+
+    /**
+     * Buffers the values of a group until its one observer subscribes.
+     */
+    static final class Group<K, T> extends GroupedObservable<K, T> implements Disposable {
+        final long longKey;
+        final GroupByObserver<T, K> parent;
+        final MpscLinkedQueue<T> queue = new MpscLinkedQueue<>();
+        final AtomicReference<Observer<? super T>> actual = new AtomicReference<>();
+        final AtomicInteger wip = new AtomicInteger();
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile boolean done;
+        Throwable error;
+        volatile boolean disposed;
+
+        // Only accessed from the parent's drain loop
+        Group<K, T> previous;
+        Group<K, T> next;
+        long lastTick;
+
+        Group(K key, long longKey, GroupByObserver<T, K> parent) {
+            super(key);
+            this.longKey = longKey;
+            this.parent = parent;
+        }
+
+        @Override
+        protected void subscribeActual(Observer<? super T> observer) {
+            if (!actual.compareAndSet(null, observer)) {
+                observer.onSubscribe(Disposables.disposed());
+                observer.onError(new IllegalStateException("Only one Observer allowed!"));
+                return;
+            }
+            observer.onSubscribe(this);
+            drain();
+        }
+
+        void onNext(T t) {
+            if (wip.get() == 0 && wip.compareAndSet(0, 1)) {
+                // Nothing buffered and nobody draining: skip the queue
+                Observer<? super T> a = actual.get();
+                if (a != null && queue.isEmpty()) {
+                    if (!disposed) {
+                        a.onNext(t);
+                    }
+                } else {
+                    queue.offer(t);
+                }
+                drainLoop();
+                return;
+            }
+            queue.offer(t);
+            drain();
+        }
+
+        void onError(Throwable e) {
+            error = e;
+            done = true;
+            release();
+            drain();
+        }
+
+        void onComplete() {
+            done = true;
+            release();
+            drain();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                parent.release();
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            drainLoop();
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+            for (;;) {
+                Observer<? super T> a = actual.get();
+                if (a != null) {
+                    for (;;) {
+                        if (disposed) {
+                            clear();
+                            return;
+                        }
+                        boolean d = done;
+                        T v = queue.poll();
+                        boolean empty = v == null;
+                        if (d && empty) {
+                            disposed = true;
+                            Throwable e = error;
+                            if (e != null) {
+                                a.onError(e);
+                            } else {
+                                a.onComplete();
+                            }
+                            return;
+                        }
+                        if (empty) {
+                            break;
+                        }
+                        a.onNext(v);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        private void clear() {
+            while (queue.poll() != null) {
+                // discard
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                release();
+                if (wip.getAndIncrement() == 0) {
+                    clear();
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
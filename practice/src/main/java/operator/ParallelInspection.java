@@ -0,0 +1,391 @@
+package operator;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import io.reactivex.ObservableConverter;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Predicate;
+
+/**
+ * {@code all}, {@code any} and {@code contains} that test the values of a sized source or an {@code Iterable}
+ * on the threads of a {@link ForkJoinPool}.
+ * <pre>
+ * Sized.fromList(orders)
+ *         .as(ParallelInspection.all(this::isValid))
+ *         .subscribe(valid -&gt; ...);
+ * </pre>
+ * The source is split into index ranges, or {@link Spliterator#trySplit() split} for an {@code Iterable},
+ * that are tested concurrently. A split does not need to tell how many values it took, so collections
+ * whose splits are not sized, like {@code HashSet} or {@code TreeSet}, are tested in parallel too:
+ * values are ordered by their path in the tree of splits, then by their index in the range they ended up in.
+ * That is the iteration order for {@link Spliterator#ORDERED ORDERED} sources; others, like the key set
+ * of a {@code ConcurrentHashMap}, may split off a later part first, which only matters to whether
+ * a deciding value or an error comes first.
+ * The result is the one the serial operator would give: the first value
+ * that decides it, a failing one for {@code all} or a matching one for {@code exists}, unless a value before it
+ * makes the predicate throw, in which case that error is emitted, like in {@code Sample2_3.all_fail_before_error}.
+ * So once a value decides, every range after it stops, and the ranges before it are finished to make sure
+ * that nothing earlier decides or fails; values after it are never reported, even if they would fail.
+ * Disposing stops all ranges.
+ * <p>
+ * The converters take a {@link SizedObservable} and fall back to the serial operators on any other source.
+ */
+public final class ParallelInspection {
+    // Ranges per thread of the pool, so that threads that finish early can take over the work of others
+    static final int RANGES_PER_THREAD = 8;
+    // Batch of an Iterable whose size is not known
+    static final int UNSIZED_BATCH = 1024;
+
+    private ParallelInspection() {
+    }
+
+    public static <T> ObservableConverter<T, Single<Boolean>> all(Predicate<? super T> predicate) {
+        return all(predicate, ForkJoinPool.commonPool());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<Boolean>> all(Predicate<? super T> predicate, ForkJoinPool pool) {
+        return upstream -> upstream instanceof SizedObservable
+                ? inspect(pool, (SizedObservable<T>) upstream, null, predicate, false)
+                : upstream.all(predicate);
+    }
+
+    public static <T> ObservableConverter<T, Single<Boolean>> exists(Predicate<? super T> predicate) {
+        return exists(predicate, ForkJoinPool.commonPool());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<Boolean>> exists(Predicate<? super T> predicate, ForkJoinPool pool) {
+        return upstream -> upstream instanceof SizedObservable
+                ? inspect(pool, (SizedObservable<T>) upstream, null, predicate, true)
+                : upstream.any(predicate);
+    }
+
+    public static <T> ObservableConverter<T, Single<Boolean>> contains(Object value) {
+        return contains(value, ForkJoinPool.commonPool());
+    }
+
+    public static <T> ObservableConverter<T, Single<Boolean>> contains(Object value, ForkJoinPool pool) {
+        Objects.requireNonNull(value, "value is null");
+        return exists(v -> value.equals(v), pool);
+    }
+
+    public static <T> Single<Boolean> all(Iterable<T> source, Predicate<? super T> predicate) {
+        return all(source, predicate, ForkJoinPool.commonPool());
+    }
+
+    public static <T> Single<Boolean> all(Iterable<T> source, Predicate<? super T> predicate, ForkJoinPool pool) {
+        return inspect(pool, null, source, predicate, false);
+    }
+
+    public static <T> Single<Boolean> exists(Iterable<T> source, Predicate<? super T> predicate) {
+        return exists(source, predicate, ForkJoinPool.commonPool());
+    }
+
+    public static <T> Single<Boolean> exists(Iterable<T> source, Predicate<? super T> predicate, ForkJoinPool pool) {
+        return inspect(pool, null, source, predicate, true);
+    }
+
+    public static <T> Single<Boolean> contains(Iterable<T> source, Object value) {
+        return contains(source, value, ForkJoinPool.commonPool());
+    }
+
+    public static <T> Single<Boolean> contains(Iterable<T> source, Object value, ForkJoinPool pool) {
+        Objects.requireNonNull(value, "value is null");
+        return exists(source, v -> value.equals(v), pool);
+    }
+
+    /**
+     * @param decidesOn the predicate result that decides: false for all, true for exists
+     */
+    private static <T> Single<Boolean> inspect(ForkJoinPool pool, SizedObservable<T> sized, Iterable<T> iterable,
+            Predicate<? super T> predicate, boolean decidesOn) {
+        return Single.create(emitter -> {
+            Inspection<T> inspection = new Inspection<>(emitter, predicate, decidesOn);
+            emitter.setCancellable(() -> inspection.cancelled = true);
+            int ranges = pool.getParallelism() * RANGES_PER_THREAD;
+            if (sized != null) {
+                long size = sized.size();
+                pool.execute(new IndexRange<>(null, inspection, sized, 0, size, Math.max(1, size / ranges)));
+            } else {
+                Spliterator<T> spliterator = iterable.spliterator();
+                long size = spliterator.getExactSizeIfKnown();
+                long threshold = size < 0 ? UNSIZED_BATCH : Math.max(1, size / ranges);
+                pool.execute(new SplitRange<>(null, inspection, spliterator, Path.ROOT, threshold));
+            }
+        });
+    }
+
+    /**
+     * A node of the tree of splits, as the sides taken from its root: 0 for a prefix that was split off,
+     * 1 for the rest it was split from. Paths compare in the order of the values under them.
+     */
+    static final class Path implements Comparable<Path> {
+        static final Path ROOT = new Path(new long[0], 0);
+
+        // Side i is bit 63 - i % 64 of word i / 64, so that words compare as unsigned longs
+        final long[] sides;
+        final int depth;
+
+        Path(long[] sides, int depth) {
+            this.sides = sides;
+            this.depth = depth;
+        }
+
+        Path prefix() {
+            return new Path(Arrays.copyOf(sides, (depth >>> 6) + 1), depth + 1);
+        }
+
+        Path rest() {
+            long[] s = Arrays.copyOf(sides, (depth >>> 6) + 1);
+            s[depth >>> 6] |= 1L << (63 - (depth & 63));
+            return new Path(s, depth + 1);
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            int words = Math.min(sides.length, other.sides.length);
+            for (int i = 0; i < words; i++) {
+                if (sides[i] != other.sides[i]) {
+                    return Long.compareUnsigned(sides[i], other.sides[i]);
+                }
+            }
+            // One is a prefix of the other
+            return Integer.compare(depth, other.depth);
+        }
+    }
+
+    /**
+     * The value that decided: the path of its range, its index in the range, and the error it raised if it did.
+     */
+    static final class Decision {
+        final Path path;
+        final long index;
+        final Throwable error;
+
+        Decision(Path path, long index, Throwable error) {
+            this.path = path;
+            this.index = index;
+            this.error = error;
+        }
+
+        boolean before(Path path, long index) {
+            int c = this.path.compareTo(path);
+            return c < 0 || c == 0 && this.index < index;
+        }
+    }
+
+    /**
+     * The state shared by the ranges of one subscription. Holds the earliest value that decided so far.
+     */
+    static final class Inspection<T> {
+        final SingleEmitter<Boolean> emitter;
+        final Predicate<? super T> predicate;
+        final boolean decidesOn;
+        volatile boolean cancelled;
+        // Only replaced by an earlier one, while holding this
+        volatile Decision decided;
+
+        Inspection(SingleEmitter<Boolean> emitter, Predicate<? super T> predicate, boolean decidesOn) {
+            this.emitter = emitter;
+            this.predicate = predicate;
+            this.decidesOn = decidesOn;
+        }
+
+        /**
+         * Tests a value.
+         *
+         * @return true if it decided
+         */
+        boolean test(Path path, long index, T value) {
+            try {
+                if (value == null) {
+                    throw new NullPointerException("The iterator returned a null value");
+                }
+                if (predicate.test(value) != decidesOn) {
+                    return false;
+                }
+                decide(path, index, null);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                decide(path, index, e);
+            }
+            return true;
+        }
+
+        synchronized void decide(Path path, long index, Throwable e) {
+            Decision d = decided;
+            if (d == null || !d.before(path, index)) {
+                decided = new Decision(path, index, e);
+            }
+        }
+
+        /**
+         * Called once every range has finished or stopped.
+         */
+        void complete() {
+            if (cancelled) {
+                return;
+            }
+            Decision d = decided;
+            if (d != null && d.error != null) {
+                emitter.onError(d.error);
+            } else {
+                emitter.onSuccess((d != null) == decidesOn);
+            }
+        }
+    }
+
+    abstract static class Range<T> extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        final Inspection<T> inspection;
+        // The decision and path last compared, and how they compared, so that paths are only compared when either changes
+        private Decision seen;
+        private Path seenPath;
+        private int order;
+
+        Range(CountedCompleter<?> parent, Inspection<T> inspection) {
+            super(parent);
+            this.inspection = inspection;
+        }
+
+        /**
+         * @return true if the value at {@code index} of the range at {@code path}, and the ones after it,
+         *         need not be tested, because an earlier value decided
+         */
+        final boolean stop(Path path, long index) {
+            if (inspection.cancelled) {
+                return true;
+            }
+            Decision d = inspection.decided;
+            if (d == null) {
+                return false;
+            }
+            if (d != seen || path != seenPath) {
+                seen = d;
+                seenPath = path;
+                order = path.compareTo(d.path);
+            }
+            return order > 0 || order == 0 && index > d.index;
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (getCompleter() == null) {
+                inspection.complete();
+            }
+        }
+    }
+
+    static final class IndexRange<T> extends Range<T> {
+        private static final long serialVersionUID = 1L;
+
+        final SizedObservable<T> source;
+        final long threshold;
+        final long from;
+        long to;
+
+        IndexRange(CountedCompleter<?> parent, Inspection<T> inspection, SizedObservable<T> source, long from, long to, long threshold) {
+            super(parent, inspection);
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void compute() {
+            while (to - from > threshold && !stop(Path.ROOT, from)) {
+                long middle = (from + to) >>> 1;
+                addToPendingCount(1);
+                new IndexRange<>(this, inspection, source, middle, to, threshold).fork();
+                to = middle;
+            }
+            for (long i = from; i < to && !stop(Path.ROOT, i); i++) {
+                T value;
+                try {
+                    value = source.get(i);
+                } catch (Throwable e) {
+                    Exceptions.throwIfFatal(e);
+                    inspection.decide(Path.ROOT, i, e);
+                    break;
+                }
+                if (inspection.test(Path.ROOT, i, value)) {
+                    break;
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    /**
+     * Splits its spliterator until it is small enough, forking the prefixes and keeping the rest,
+     * which it then tests. Values are indexed from 0 in the range they are tested in.
+     */
+    static final class SplitRange<T> extends Range<T> implements Consumer<T> {
+        private static final long serialVersionUID = 1L;
+
+        final Spliterator<T> spliterator;
+        final Path path;
+        final long threshold;
+        T current;
+
+        SplitRange(CountedCompleter<?> parent, Inspection<T> inspection, Spliterator<T> spliterator, Path path, long threshold) {
+            super(parent, inspection);
+            this.spliterator = spliterator;
+            this.path = path;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void compute() {
+            Spliterator<T> rest = spliterator;
+            Path at = path;
+            while (rest.estimateSize() > threshold && !stop(at, 0)) {
+                Spliterator<T> prefix = rest.trySplit();
+                if (prefix == null) {
+                    break;
+                }
+                addToPendingCount(1);
+                new SplitRange<>(this, inspection, prefix, at.prefix(), threshold).fork();
+                at = at.rest();
+            }
+            run(rest, at);
+            tryComplete();
+        }
+
+        private void run(Spliterator<T> values, Path at) {
+            for (long index = 0; !stop(at, index); index++) {
+                boolean advanced;
+                try {
+                    advanced = values.tryAdvance(this);
+                } catch (Throwable e) {
+                    Exceptions.throwIfFatal(e);
+                    inspection.decide(at, index, e);
+                    return;
+                }
+                if (!advanced) {
+                    return;
+                }
+                T value = current;
+                current = null;
+                if (inspection.test(at, index, value)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void accept(T value) {
+            current = value;
+        }
+    }
+}
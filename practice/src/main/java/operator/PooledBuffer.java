@@ -0,0 +1,94 @@
+package operator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A buffer emitted by {@link PooledBuffers}, that goes back to the pool of its subscription once released,
+ * to be filled again. Its contents are only valid until then.
+ */
+public final class PooledBuffer<T> extends AbstractList<T> implements RandomAccess {
+    final Pool<T> pool;
+    final Object[] elements;
+    final AtomicBoolean released = new AtomicBoolean();
+    int size;
+    // The next free buffer, while in the pool
+    PooledBuffer<T> next;
+
+    PooledBuffer(Pool<T> pool, int capacity) {
+        this.pool = pool;
+        this.elements = new Object[capacity];
+    }
+
+    void append(T t) {
+        elements[size++] = t;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the buffer to its pool. Only the first call has an effect.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+            pool.push(this);
+        }
+    }
+
+    /**
+     * The free buffers of one subscription, as a stack that any thread can push released buffers onto.
+     * The subscription takes the whole stack at once, so pushing is the only compare-and-set.
+     */
+    static final class Pool<T> extends AtomicReference<PooledBuffer<T>> {
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        // Taken from the stack all at once, only accessed by the subscription
+        PooledBuffer<T> taken;
+
+        Pool(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void push(PooledBuffer<T> buffer) {
+            for (;;) {
+                PooledBuffer<T> top = get();
+                buffer.next = top;
+                if (compareAndSet(top, buffer)) {
+                    return;
+                }
+            }
+        }
+
+        PooledBuffer<T> acquire() {
+            if (taken == null) {
+                taken = getAndSet(null);
+            }
+            PooledBuffer<T> buffer = taken;
+            if (buffer == null) {
+                return new PooledBuffer<>(this, capacity);
+            }
+            taken = buffer.next;
+            buffer.next = null;
+            buffer.released.set(false);
+            return buffer;
+        }
+    }
+}
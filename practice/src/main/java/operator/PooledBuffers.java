@@ -0,0 +1,329 @@
+package operator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * {@code buffer(maxTime, unit, maxSize)} that reuses its buffers instead of allocating a list for each.
+ * <pre>
+ * events.compose(PooledBuffers.bufferPooled(512, 5, TimeUnit.MILLISECONDS))
+ *       .subscribe(writer::writeAll);
+ * events.compose(PooledBuffers.bufferReleasable(512, 5, TimeUnit.MILLISECONDS))
+ *       .subscribe(batch -&gt; writer.writeAsync(batch).whenComplete((r, e) -&gt; batch.release()));
+ * </pre>
+ * A buffer is emitted once it holds {@code maxSize} values, or {@code maxTime} after its first value,
+ * whichever comes first. Unlike {@code buffer}, whose timer ticks from the subscription on, empty buffers
+ * are never emitted, and an idle source keeps no timer: like {@link Coalescing#debounce}, a subscription has
+ * at most one timer, armed by the first value of a buffer, and armed again for the rest of the time
+ * when it fires for a buffer that was already emitted because it was full.
+ * <p>
+ * Emitted buffers come from a pool per subscription, as a {@link PooledBuffer} that is cleared and
+ * filled again once released:
+ * <ul>
+ * <li>{@link #bufferPooled} releases it as soon as the downstream {@code onNext} returns, so it must not be
+ * kept, or passed on to another thread, without copying it</li>
+ * <li>{@link #bufferReleasable} leaves it to the downstream to {@link PooledBuffer#release()} it,
+ * which may happen on any thread. A buffer that is never released is not reused, but garbage collected</li>
+ * </ul>
+ * The pool only ever holds as many buffers as were in use at the same time.
+ */
+public final class PooledBuffers {
+
+    private PooledBuffers() {
+    }
+
+    public static <T> ObservableTransformer<T, List<T>> bufferPooled(int maxSize, long maxTime, TimeUnit unit) {
+        return bufferPooled(maxSize, maxTime, unit, Schedulers.computation());
+    }
+
+    public static <T> ObservableTransformer<T, List<T>> bufferPooled(int maxSize, long maxTime, TimeUnit unit, Scheduler scheduler) {
+        long maxTimeNanos = check(maxSize, maxTime, unit);
+        return upstream -> new BufferObservable<T, List<T>>(upstream, maxSize, maxTimeNanos, scheduler, true);
+    }
+
+    public static <T> ObservableTransformer<T, PooledBuffer<T>> bufferReleasable(int maxSize, long maxTime, TimeUnit unit) {
+        return bufferReleasable(maxSize, maxTime, unit, Schedulers.computation());
+    }
+
+    public static <T> ObservableTransformer<T, PooledBuffer<T>> bufferReleasable(int maxSize, long maxTime, TimeUnit unit, Scheduler scheduler) {
+        long maxTimeNanos = check(maxSize, maxTime, unit);
+        return upstream -> new BufferObservable<T, PooledBuffer<T>>(upstream, maxSize, maxTimeNanos, scheduler, false);
+    }
+
+    private static long check(int maxSize, long maxTime, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize > 0 required but it was " + maxSize);
+        }
+        if (maxTime <= 0) {
+            throw new IllegalArgumentException("maxTime > 0 required but it was " + maxTime);
+        }
+        return unit.toNanos(maxTime);
+    }
+
+    /**
+     * @param <R> the type the buffers are emitted as: a plain list when they are released automatically
+     */
+    static final class BufferObservable<T, R> extends Observable<R> {
+        final ObservableSource<T> source;
+        final int maxSize;
+        final long maxTimeNanos;
+        final Scheduler scheduler;
+        final boolean autoRelease;
+
+        BufferObservable(ObservableSource<T> source, int maxSize, long maxTimeNanos, Scheduler scheduler, boolean autoRelease) {
+            this.source = source;
+            this.maxSize = maxSize;
+            this.maxTimeNanos = maxTimeNanos;
+            this.scheduler = scheduler;
+            this.autoRelease = autoRelease;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void subscribeActual(Observer<? super R> observer) {
+            source.subscribe(new BufferObserver<>((Observer<? super PooledBuffer<T>>) observer, scheduler.createWorker(), this));
+        }
+    }
+
+    /**
+     * Fills the current buffer under its own lock, which the timer also takes to close it.
+     * Closed buffers wait in a list, linked through {@link PooledBuffer#next}, and are emitted by the drain loop
+     * of the wip counter it extends, outside of the lock.
+     */
+    static final class BufferObserver<T> extends AtomicInteger implements Observer<T>, Disposable, Runnable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super PooledBuffer<T>> downstream;
+        final Scheduler.Worker worker;
+        final int maxSize;
+        final long maxTimeNanos;
+        final boolean autoRelease;
+        final PooledBuffer.Pool<T> pool;
+        Disposable upstream;
+        volatile boolean disposed;
+
+        // Guarded by this
+        PooledBuffer<T> current;
+        long deadline;
+        boolean armed;
+        PooledBuffer<T> closedHead;
+        PooledBuffer<T> closedTail;
+        boolean done;
+        Throwable error;
+
+        BufferObserver(Observer<? super PooledBuffer<T>> downstream, Scheduler.Worker worker, BufferObservable<T, ?> parent) {
+            this.downstream = downstream;
+            this.worker = worker;
+            this.maxSize = parent.maxSize;
+            this.maxTimeNanos = parent.maxTimeNanos;
+            this.autoRelease = parent.autoRelease;
+            this.pool = new PooledBuffer.Pool<>(parent.maxSize);
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (upstream != null) {
+                d.dispose();
+                RxJavaPlugins.onError(new IllegalStateException("Disposable already set!"));
+                return;
+            }
+            upstream = d;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            boolean arm = false;
+            boolean full = false;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                PooledBuffer<T> buffer = current;
+                if (buffer == null) {
+                    buffer = pool.acquire();
+                    current = buffer;
+                    deadline = worker.now(TimeUnit.NANOSECONDS) + maxTimeNanos;
+                    arm = !armed;
+                    armed = true;
+                }
+                buffer.append(t);
+                if (buffer.size == maxSize) {
+                    close();
+                    full = true;
+                }
+            }
+            if (arm) {
+                worker.schedule(this, maxTimeNanos, TimeUnit.NANOSECONDS);
+            }
+            if (full) {
+                drain();
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            synchronized (this) {
+                if (done) {
+                    RxJavaPlugins.onError(e);
+                    return;
+                }
+                // Like buffer, what was not emitted yet is dropped
+                if (current != null) {
+                    current.release();
+                    current = null;
+                }
+                releaseClosed();
+                error = e;
+                done = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (current != null) {
+                    close();
+                }
+                done = true;
+            }
+            drain();
+        }
+
+        /**
+         * The timer: closes the current buffer if it is due, or waits for it if the buffer is newer than the timer.
+         */
+        @Override
+        public void run() {
+            long wait;
+            synchronized (this) {
+                if (current == null) {
+                    armed = false;
+                    return;
+                }
+                wait = deadline - worker.now(TimeUnit.NANOSECONDS);
+                if (wait <= 0) {
+                    close();
+                    armed = false;
+                }
+            }
+            if (wait > 0) {
+                worker.schedule(this, wait, TimeUnit.NANOSECONDS);
+            } else {
+                drain();
+            }
+        }
+
+        // Guarded by this
+        private void close() {
+            PooledBuffer<T> buffer = current;
+            current = null;
+            if (closedTail == null) {
+                closedHead = buffer;
+            } else {
+                closedTail.next = buffer;
+            }
+            closedTail = buffer;
+        }
+
+        // Guarded by this
+        private PooledBuffer<T> pollClosed() {
+            PooledBuffer<T> buffer = closedHead;
+            if (buffer != null) {
+                closedHead = buffer.next;
+                if (closedHead == null) {
+                    closedTail = null;
+                }
+                buffer.next = null;
+            }
+            return buffer;
+        }
+
+        // Guarded by this
+        private void releaseClosed() {
+            PooledBuffer<T> buffer;
+            while ((buffer = pollClosed()) != null) {
+                buffer.release();
+            }
+        }
+
+        void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                for (;;) {
+                    if (disposed) {
+                        synchronized (this) {
+                            releaseClosed();
+                        }
+                        return;
+                    }
+                    PooledBuffer<T> buffer;
+                    boolean terminated;
+                    Throwable e;
+                    synchronized (this) {
+                        buffer = pollClosed();
+                        terminated = done;
+                        e = error;
+                    }
+                    if (buffer == null) {
+                        if (terminated) {
+                            if (e != null) {
+                                downstream.onError(e);
+                            } else {
+                                downstream.onComplete();
+                            }
+                            worker.dispose();
+                            // The wip counter stays above zero, so the loop never runs again
+                            return;
+                        }
+                        break;
+                    }
+                    downstream.onNext(buffer);
+                    if (autoRelease) {
+                        buffer.release();
+                    }
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                upstream.dispose();
+                worker.dispose();
+                if (getAndIncrement() == 0) {
+                    synchronized (this) {
+                        releaseClosed();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package operator;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Function;
+import io.reactivex.plugins.RxJavaPlugins;
+import util.MpscLinkedQueue;
+
+/**
+ * Runs a CPU-heavy mapping on up to {@code parallelism} threads at once.
+ * <pre>
+ * Flowable.range(0, 1_000_000)
+ *         .compose(Rails.mapOrdered(Runtime.getRuntime().availableProcessors(), Schedulers.computation(), this::score))
+ *         .subscribe(...);
+ * </pre>
+ * is like {@code parallel(n).runOn(scheduler).map(mapper).sequential()}, except that the rails share
+ * one queue of pending values instead of being dealt values round-robin: a rail that finishes early
+ * takes the next value, so one slow value does not hold back the values queued behind it on the same rail.
+ * <p>
+ * {@link #mapOrdered} emits the results in the order of their values, through a reassembly buffer;
+ * {@link #map} emits them as soon as they are ready. At most {@code window} values are requested
+ * from upstream and not yet emitted downstream, which bounds the buffer and the pending queue.
+ * Rails are only scheduled while there are values to map.
+ */
+public final class Rails {
+
+    private Rails() {
+    }
+
+    public static <T, R> FlowableTransformer<T, R> map(int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper) {
+        return map(parallelism, scheduler, mapper, defaultWindow(parallelism));
+    }
+
+    public static <T, R> FlowableTransformer<T, R> map(int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper, int window) {
+        return rails(parallelism, scheduler, mapper, window, false);
+    }
+
+    public static <T, R> FlowableTransformer<T, R> mapOrdered(int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper) {
+        return mapOrdered(parallelism, scheduler, mapper, defaultWindow(parallelism));
+    }
+
+    public static <T, R> FlowableTransformer<T, R> mapOrdered(int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper, int window) {
+        return rails(parallelism, scheduler, mapper, window, true);
+    }
+
+    private static int defaultWindow(int parallelism) {
+        return Math.max(Flowable.bufferSize(), parallelism * 16);
+    }
+
+    private static <T, R> FlowableTransformer<T, R> rails(int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper, int window, boolean ordered) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism > 0 required but it was " + parallelism);
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("window > 0 required but it was " + window);
+        }
+        // A power of two, so that the reassembly buffer is indexed with a mask
+        int capacity = Integer.highestOneBit(Math.max(window - 1, 1)) << 1;
+        return upstream -> new RailsFlowable<>(upstream, parallelism, scheduler, mapper, capacity, ordered);
+    }
+
+    static final class RailsFlowable<T, R> extends Flowable<R> {
+        final Flowable<T> source;
+        final int parallelism;
+        final Scheduler scheduler;
+        final Function<? super T, ? extends R> mapper;
+        final int window;
+        final boolean ordered;
+
+        RailsFlowable(Flowable<T> source, int parallelism, Scheduler scheduler, Function<? super T, ? extends R> mapper, int window, boolean ordered) {
+            this.source = source;
+            this.parallelism = parallelism;
+            this.scheduler = scheduler;
+            this.mapper = mapper;
+            this.window = window;
+            this.ordered = ordered;
+        }
+
+        @Override
+        protected void subscribeActual(Subscriber<? super R> s) {
+            source.subscribe(new Coordinator<>(s, this));
+        }
+    }
+
+    static final class Task<T> {
+        final long index;
+        final T value;
+
+        Task(long index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Hands values to the rails and emits their results; emission is serialized by the wip counter it extends.
+     */
+    static final class Coordinator<T, R> extends AtomicInteger implements FlowableSubscriber<T>, Subscription, Runnable {
+        private static final long serialVersionUID = 1L;
+
+        final Subscriber<? super R> downstream;
+        final Function<? super T, ? extends R> mapper;
+        final Scheduler scheduler;
+        final int parallelism;
+        final int window;
+        final int limit;
+        final boolean ordered;
+        final ConcurrentLinkedQueue<Task<T>> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicInteger running = new AtomicInteger();
+        // Total requested by downstream, compared against the total emitted
+        final AtomicLong requested = new AtomicLong();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        // Results by index when ordered, by completion when not
+        final AtomicReferenceArray<R> slots;
+        final MpscLinkedQueue<R> results;
+
+        Subscription upstream;
+        // Only written by onNext, read after done
+        long received;
+        volatile boolean done;
+        volatile boolean cancelled;
+
+        // Only accessed while draining
+        long emitted;
+        int consumed;
+
+        Coordinator(Subscriber<? super R> downstream, RailsFlowable<T, R> parent) {
+            this.downstream = downstream;
+            this.mapper = parent.mapper;
+            this.scheduler = parent.scheduler;
+            this.parallelism = parent.parallelism;
+            this.window = parent.window;
+            this.limit = window - (window >> 2);
+            this.ordered = parent.ordered;
+            this.slots = ordered ? new AtomicReferenceArray<>(window) : null;
+            this.results = ordered ? null : new MpscLinkedQueue<>();
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (upstream != null) {
+                s.cancel();
+                RxJavaPlugins.onError(new IllegalStateException("Subscription already set!"));
+                return;
+            }
+            upstream = s;
+            downstream.onSubscribe(this);
+            s.request(window);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            tasks.offer(new Task<>(received++, t));
+            startRail();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            if (!error.compareAndSet(null, e)) {
+                RxJavaPlugins.onError(e);
+            }
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            drain();
+        }
+
+        private void startRail() {
+            for (;;) {
+                int r = running.get();
+                if (r == parallelism) {
+                    // A running rail checks the queue again after it stops
+                    return;
+                }
+                if (running.compareAndSet(r, r + 1)) {
+                    scheduler.scheduleDirect(this);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * A rail: maps pending values until there are none left.
+         */
+        @Override
+        public void run() {
+            for (;;) {
+                Task<T> task;
+                while ((task = tasks.poll()) != null) {
+                    if (cancelled || error.get() != null) {
+                        tasks.clear();
+                        break;
+                    }
+                    R result;
+                    try {
+                        result = mapper.apply(task.value);
+                        if (result == null) {
+                            throw new NullPointerException("The mapper returned a null value");
+                        }
+                    } catch (Throwable e) {
+                        Exceptions.throwIfFatal(e);
+                        fail(e);
+                        break;
+                    }
+                    if (ordered) {
+                        slots.lazySet((int) task.index & (window - 1), result);
+                    } else {
+                        results.offer(result);
+                    }
+                    drain();
+                }
+                running.decrementAndGet();
+                // A value offered while this rail was stopping may have seen all rails running
+                if (tasks.isEmpty() || !tryRestart()) {
+                    return;
+                }
+            }
+        }
+
+        private boolean tryRestart() {
+            for (;;) {
+                int r = running.get();
+                if (r == parallelism) {
+                    return false;
+                }
+                if (running.compareAndSet(r, r + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (error.compareAndSet(null, e)) {
+                upstream.cancel();
+                drain();
+            } else {
+                RxJavaPlugins.onError(e);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            for (;;) {
+                long r = requested.get();
+                long u = r + n < 0 ? Long.MAX_VALUE : r + n;
+                if (requested.compareAndSet(r, u)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                drain();
+            }
+        }
+
+        private void clear() {
+            tasks.clear();
+            if (ordered) {
+                for (int i = 0; i < window; i++) {
+                    slots.lazySet(i, null);
+                }
+            } else {
+                while (results.poll() != null) {
+                    // discard
+                }
+            }
+        }
+
+        /**
+         * Once cancelled or terminated, still lets go of the wip counter instead of returning with it,
+         * so that the rails still mapping values when it happened get in to clear their results.
+         */
+        private void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (;;) {
+                long r = requested.get();
+                long e = emitted;
+                while (true) {
+                    if (cancelled) {
+                        clear();
+                        break;
+                    }
+                    Throwable ex = error.get();
+                    if (ex != null) {
+                        cancelled = true;
+                        upstream.cancel();
+                        clear();
+                        downstream.onError(ex);
+                        break;
+                    }
+                    boolean d = done;
+                    if (d && e == received) {
+                        cancelled = true;
+                        downstream.onComplete();
+                        break;
+                    }
+                    if (e == r) {
+                        break;
+                    }
+                    R v;
+                    if (ordered) {
+                        int slot = (int) e & (window - 1);
+                        v = slots.get(slot);
+                        if (v != null) {
+                            slots.lazySet(slot, null);
+                        }
+                    } else {
+                        v = results.poll();
+                    }
+                    if (v == null) {
+                        break;
+                    }
+                    downstream.onNext(v);
+                    e++;
+                    if (++consumed == limit) {
+                        consumed = 0;
+                        upstream.request(limit);
+                    }
+                }
+                emitted = e;
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
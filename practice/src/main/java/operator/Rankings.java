@@ -0,0 +1,253 @@
+package operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.ObservableConverter;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Single;
+import io.reactivex.functions.Predicate;
+import util.KllSketch;
+
+/**
+ * Top-K and percentiles of a sequence without {@code toSortedList()}.
+ * <pre>
+ * requests.as(Rankings.topK(10, comparing(Request::getLatency)))
+ *         .subscribe(slowest -&gt; ...);
+ * requests.as(Rankings.quantiles(Request::getLatency, 0.5, 0.99))
+ *         .subscribe(p -&gt; System.out.println("median " + p[0] + ", p99 " + p[1]));
+ * </pre>
+ * {@link #topK} keeps the {@code k} greatest values in a bounded heap, so memory is O(k) and each value costs
+ * at most O(log k). {@link #quantiles} feeds a {@link KllSketch}, whose size only depends on its accuracy.
+ * The scan variants emit running results, where {@code toSortedList().map(...)} emits nothing until the end.
+ * Each subscription gets its own state.
+ */
+public final class Rankings {
+
+    private Rankings() {
+    }
+
+    /**
+     * Emits the {@code k} greatest values, greatest first. Of equal values, the earliest are kept, and come first.
+     */
+    public static <T> ObservableConverter<T, Single<List<T>>> topK(int k, Comparator<? super T> comparator) {
+        checkK(k);
+        return upstream -> upstream
+                .collect(() -> new BoundedHeap<T>(k, comparator), BoundedHeap::test)
+                .map(BoundedHeap::toList);
+    }
+
+    /**
+     * Emits the {@code k} greatest values so far, greatest first, whenever they change.
+     * Equal values are kept and ordered as by {@link #topK}: once there are k, a value equal to the least changes nothing.
+     */
+    public static <T> ObservableTransformer<T, List<T>> scanTopK(int k, Comparator<? super T> comparator) {
+        checkK(k);
+        return upstream -> Observable.defer(() -> {
+            BoundedHeap<T> heap = new BoundedHeap<>(k, comparator);
+            return upstream.filter(heap).map(v -> heap.toList());
+        });
+    }
+
+    /**
+     * Emits estimates of the given quantiles, each between 0 and 1, with {@link KllSketch#DEFAULT_K}.
+     * Values are NaN if there were none.
+     */
+    public static <T> ObservableConverter<T, Single<double[]>> quantiles(ToDoubleFunction<? super T> valueSelector, double... fractions) {
+        checkFractions(fractions);
+        double[] copy = fractions.clone();
+        return upstream -> upstream.as(sketch(valueSelector, KllSketch.DEFAULT_K)).map(sketch -> sketch.quantiles(copy));
+    }
+
+    /**
+     * Emits the sketch of all values, to query, or to {@link KllSketch#merge merge} with the sketches of other sequences.
+     */
+    public static <T> ObservableConverter<T, Single<KllSketch>> sketch(ToDoubleFunction<? super T> valueSelector, int k) {
+        // Validates k before any subscription
+        new KllSketch(k);
+        return upstream -> upstream.collect(() -> new KllSketch(k), (sketch, v) -> sketch.update(valueSelector.applyAsDouble(v)));
+    }
+
+    /**
+     * Emits estimates of the given quantiles of the values so far, after every {@code every} values and at the end.
+     * Querying sorts the about {@code 3 * k} values of the sketch, which is why it is not done on every value.
+     */
+    public static <T> ObservableTransformer<T, double[]> scanQuantiles(ToDoubleFunction<? super T> valueSelector, int every, double... fractions) {
+        if (every <= 0) {
+            throw new IllegalArgumentException("every > 0 required but it was " + every);
+        }
+        checkFractions(fractions);
+        double[] copy = fractions.clone();
+        return upstream -> Observable.defer(() -> {
+            QuantileScan<T> scan = new QuantileScan<>(valueSelector, every, copy);
+            return upstream
+                    .filter(scan)
+                    .map(v -> scan.query())
+                    .concatWith(Maybe.fromCallable(scan::last));
+        });
+    }
+
+    private static void checkK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k > 0 required but it was " + k);
+        }
+    }
+
+    private static void checkFractions(double[] fractions) {
+        for (double fraction : fractions) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("fraction must be in [0, 1] but it was " + fraction);
+            }
+        }
+    }
+
+    /**
+     * Accepts every {@code every}-th value, after adding it to the sketch.
+     */
+    static final class QuantileScan<T> implements Predicate<T> {
+        final ToDoubleFunction<? super T> valueSelector;
+        final int every;
+        final double[] fractions;
+        final KllSketch sketch = new KllSketch();
+        int sinceQuery;
+
+        QuantileScan(ToDoubleFunction<? super T> valueSelector, int every, double[] fractions) {
+            this.valueSelector = valueSelector;
+            this.every = every;
+            this.fractions = fractions;
+        }
+
+        @Override
+        public boolean test(T value) {
+            sketch.update(valueSelector.applyAsDouble(value));
+            if (++sinceQuery == every) {
+                sinceQuery = 0;
+                return true;
+            }
+            return false;
+        }
+
+        double[] query() {
+            return sketch.quantiles(fractions);
+        }
+
+        /**
+         * @return the final estimates, or null if they were just emitted
+         */
+        double[] last() {
+            return sinceQuery == 0 && !sketch.isEmpty() ? null : query();
+        }
+    }
+
+    /**
+     * The k greatest values so far in a binary min-heap, whose root is the value to replace next.
+     * Each value is numbered in arrival order, and of equal values the later one counts as the lesser,
+     * so that it is the one replaced and the earliest are kept.
+     * As a predicate, accepts the values that entered the heap.
+     */
+    static final class BoundedHeap<T> implements Predicate<T> {
+        final int k;
+        final Comparator<? super T> comparator;
+        Object[] heap;
+        // The arrival number of each value of the heap, moved along with it
+        long[] order;
+        int size;
+        long arrivals;
+
+        BoundedHeap(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+            // Grows up to k, so that a large k on a short sequence stays small
+            int capacity = Math.min(k, 16);
+            this.heap = new Object[capacity];
+            this.order = new long[capacity];
+        }
+
+        @Override
+        public boolean test(T value) {
+            long n = arrivals++;
+            if (size < k) {
+                if (size == heap.length) {
+                    int capacity = (int) Math.min(k, size * 2L);
+                    heap = Arrays.copyOf(heap, capacity);
+                    order = Arrays.copyOf(order, capacity);
+                }
+                siftUp(size++, value, n);
+                return true;
+            }
+            // Arrived last, it is the lesser of equal values
+            if (comparator.compare(value, root()) <= 0) {
+                return false;
+            }
+            siftDown(0, value, n);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T root() {
+            return (T) heap[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(T a, long aOrder, int i) {
+            int c = comparator.compare(a, (T) heap[i]);
+            return c != 0 ? c : Long.compare(order[i], aOrder);
+        }
+
+        private void siftUp(int i, T value, long n) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(value, n, parent) >= 0) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                order[i] = order[parent];
+                i = parent;
+            }
+            heap[i] = value;
+            order[i] = n;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void siftDown(int i, T value, long n) {
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && compare((T) heap[right], order[right], child) < 0) {
+                    child = right;
+                }
+                if (compare(value, n, child) <= 0) {
+                    break;
+                }
+                heap[i] = heap[child];
+                order[i] = order[child];
+                i = child;
+            }
+            heap[i] = value;
+            order[i] = n;
+        }
+
+        /**
+         * The values greatest first, and equal ones in arrival order.
+         */
+        @SuppressWarnings("unchecked")
+        List<T> toList() {
+            Integer[] slots = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            Arrays.sort(slots, (a, b) -> -compare((T) heap[a], order[a], b));
+            List<T> list = new ArrayList<>(size);
+            for (Integer slot : slots) {
+                list.add((T) heap[slot]);
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package operator;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+import org.reactivestreams.Publisher;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableConverter;
+import io.reactivex.Single;
+import io.reactivex.functions.BiPredicate;
+
+/**
+ * Comparing two long sequences without buffering one while waiting for the other.
+ * <pre>
+ * SequenceEquality.sequenceEqualBounded(primaryLog, replicaLog, 256)
+ *         .subscribe(equal -&gt; ...);
+ * primaryLog.as(SequenceEquality.sequenceDigest(Event::checksum))
+ *         .subscribe(digest -&gt; ...);
+ * </pre>
+ * {@code Observable.sequenceEqual} queues the values of the faster source until the slower one catches up,
+ * without limit: an {@code Observable} cannot be told to wait. {@link #sequenceEqualBounded} takes
+ * {@code Publisher}s instead, and is {@link Flowable#sequenceEqual}, which holds at most {@code bufferSize}
+ * values of each and only requests more from a source as its values are compared, so the faster one waits.
+ * It stops at the first difference, and fuses with sources that support it, like {@code range}, to skip the buffers.
+ * <p>
+ * {@link #sequenceDigest} reduces a sequence to a 64-bit hash of its values, in order, and of its length,
+ * so that sequences on different machines, or read at different times, can be compared by their digests alone.
+ * Different sequences have the same digest with a probability of about 2^-64, as long as
+ * {@code hashFunction} itself does not collide.
+ */
+public final class SequenceEquality {
+
+    private SequenceEquality() {
+    }
+
+    public static <T> Single<Boolean> sequenceEqualBounded(Publisher<? extends T> first, Publisher<? extends T> second) {
+        return sequenceEqualBounded(first, second, Objects::equals, Flowable.bufferSize());
+    }
+
+    public static <T> Single<Boolean> sequenceEqualBounded(Publisher<? extends T> first, Publisher<? extends T> second, int bufferSize) {
+        return sequenceEqualBounded(first, second, Objects::equals, bufferSize);
+    }
+
+    public static <T> Single<Boolean> sequenceEqualBounded(Publisher<? extends T> first, Publisher<? extends T> second,
+            BiPredicate<? super T, ? super T> isEqual, int bufferSize) {
+        return Flowable.sequenceEqual(first, second, isEqual, bufferSize);
+    }
+
+    public static <T> FlowableConverter<T, Single<Long>> sequenceDigest() {
+        return sequenceDigest(Object::hashCode);
+    }
+
+    /**
+     * @param hashFunction a hash of a value; the digest is only as good as it is,
+     *                     so for large sequences prefer a 64-bit hash over {@code hashCode}
+     */
+    public static <T> FlowableConverter<T, Single<Long>> sequenceDigest(ToLongFunction<? super T> hashFunction) {
+        return upstream -> upstream
+                .collect(Digest::new, (digest, v) -> digest.add(hashFunction.applyAsLong(v)))
+                .map(Digest::value);
+    }
+
+    /**
+     * Chains the hashes of the values through a mixing function, which makes the digest depend on their order.
+     */
+    static final class Digest {
+        long hash;
+        long count;
+
+        void add(long valueHash) {
+            hash = mix(hash + valueHash);
+            count++;
+        }
+
+        long value() {
+            return mix(hash ^ mix(count));
+        }
+
+        // The finalizer of MurmurHash3: every input bit affects every output bit
+        static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package operator;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.ObservableConverter;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+/**
+ * count, isEmpty and elementAt in O(1) on sources whose length is known.
+ * <pre>
+ * Sized.fromArray(people)
+ *         .compose(Sized.map(p -> p.name))
+ *         .as(Sized.count())
+ *         .subscribe(new PrintSubscriber("Count"));
+ * </pre>
+ * {@link Observable#count()} subscribes and counts every value, even on {@code fromArray}, whose length it could
+ * just read. The sources here are {@link SizedObservable}s, which emit like {@code range}, {@code fromArray} and
+ * {@code fromIterable}, and the aggregations read their length, or compute the one value asked for, instead.
+ * {@link #map} keeps a source sized; any other operator, {@code filter} in particular, turns it into a plain
+ * {@code Observable}, on which the aggregations are the usual ones.
+ * <p>
+ * The shortcut does not call the mappers of the values it skips, so mappers are expected to have no side effects:
+ * {@code count} does not fail where emitting would have, and {@code elementAt} calls the mappers once, for its value.
+ * The size of a list is read on subscription, like {@code fromIterable} would iterate it.
+ */
+public final class Sized {
+
+    private Sized() {
+    }
+
+    //Sources
+
+    public static SizedObservable<Integer> range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Integer overflow");
+        }
+        return new SizedObservable<Integer>() {
+            @Override
+            public long size() {
+                return count;
+            }
+
+            @Override
+            public Integer get(long index) {
+                return start + (int) index;
+            }
+
+            @Override
+            protected void subscribeActual(Observer<? super Integer> observer) {
+                Observable.range(start, count).subscribe(observer);
+            }
+        };
+    }
+
+    @SafeVarargs
+    public static <T> SizedObservable<T> fromArray(T... items) {
+        return new SizedObservable<T>() {
+            @Override
+            public long size() {
+                return items.length;
+            }
+
+            @Override
+            public T get(long index) {
+                T value = items[(int) index];
+                if (value == null) {
+                    throw new NullPointerException("The element at index " + index + " is null");
+                }
+                return value;
+            }
+
+            @Override
+            protected void subscribeActual(Observer<? super T> observer) {
+                Observable.fromArray(items).subscribe(observer);
+            }
+        };
+    }
+
+    /**
+     * Emits the values of a list with fast random access, such as an {@code ArrayList}.
+     */
+    public static <T> SizedObservable<T> fromList(List<T> list) {
+        return new SizedObservable<T>() {
+            @Override
+            public long size() {
+                return list.size();
+            }
+
+            @Override
+            public T get(long index) {
+                T value = list.get((int) index);
+                if (value == null) {
+                    throw new NullPointerException("The iterator returned a null value");
+                }
+                return value;
+            }
+
+            @Override
+            protected void subscribeActual(Observer<? super T> observer) {
+                Observable.fromIterable(list).subscribe(observer);
+            }
+        };
+    }
+
+    //Intermediate operators
+
+    /**
+     * {@link Observable#map}, which keeps a sized source sized.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, R> ObservableTransformer<T, R> map(Function<? super T, ? extends R> mapper) {
+        return upstream -> {
+            if (!(upstream instanceof SizedObservable)) {
+                return upstream.map(mapper);
+            }
+            SizedObservable<T> source = (SizedObservable<T>) upstream;
+            return new SizedObservable<R>() {
+                @Override
+                public long size() {
+                    return source.size();
+                }
+
+                @Override
+                public R get(long index) throws Exception {
+                    R value = mapper.apply(source.get(index));
+                    if (value == null) {
+                        throw new NullPointerException("The mapper function returned a null value.");
+                    }
+                    return value;
+                }
+
+                @Override
+                protected void subscribeActual(Observer<? super R> observer) {
+                    source.map(mapper).subscribe(observer);
+                }
+            };
+        };
+    }
+
+    //Aggregations
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<Long>> count() {
+        return upstream -> upstream instanceof SizedObservable
+                ? Single.fromCallable(((SizedObservable<T>) upstream)::size)
+                : upstream.count();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<Boolean>> isEmpty() {
+        return upstream -> upstream instanceof SizedObservable
+                ? Single.fromCallable(() -> ((SizedObservable<T>) upstream).size() == 0)
+                : upstream.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Maybe<T>> elementAt(long index) {
+        checkIndex(index);
+        return upstream -> {
+            if (!(upstream instanceof SizedObservable)) {
+                return upstream.elementAt(index);
+            }
+            SizedObservable<T> source = (SizedObservable<T>) upstream;
+            // A null result completes the Maybe empty
+            return Maybe.fromCallable(() -> index < source.size() ? source.get(index) : null);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<T>> elementAt(long index, T defaultItem) {
+        checkIndex(index);
+        if (defaultItem == null) {
+            throw new NullPointerException("defaultItem is null");
+        }
+        return upstream -> {
+            if (!(upstream instanceof SizedObservable)) {
+                return upstream.elementAt(index, defaultItem);
+            }
+            SizedObservable<T> source = (SizedObservable<T>) upstream;
+            return Single.fromCallable(() -> index < source.size() ? source.get(index) : defaultItem);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ObservableConverter<T, Single<T>> elementAtOrError(long index) {
+        checkIndex(index);
+        return upstream -> {
+            if (!(upstream instanceof SizedObservable)) {
+                return upstream.elementAtOrError(index);
+            }
+            SizedObservable<T> source = (SizedObservable<T>) upstream;
+            return Single.fromCallable(() -> {
+                if (index >= source.size()) {
+                    throw new NoSuchElementException();
+                }
+                return source.get(index);
+            });
+        };
+    }
+
+    private static void checkIndex(long index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("index >= 0 required but it was " + index);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package operator;
+
+import io.reactivex.Observable;
+
+/**
+ * An {@link Observable} whose length is known before subscribing, and whose values can be computed
+ * by index without emitting the ones before them. Created by {@link Sized}, and used by its aggregations
+ * to answer count, isEmpty and elementAt without a subscription.
+ */
+public abstract class SizedObservable<T> extends Observable<T> {
+
+    /**
+     * @return the number of values the next subscription will emit
+     */
+    public abstract long size();
+
+    /**
+     * @param index between 0 and {@link #size()} - 1
+     * @return the value a subscription would emit at {@code index}
+     * @throws Exception if computing the value fails, as emitting it would
+     */
+    public abstract T get(long index) throws Exception;
+}
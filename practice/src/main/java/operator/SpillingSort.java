@@ -0,0 +1,362 @@
+package operator;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import util.Codec;
+
+/**
+ * A {@link Flowable#sorted(Comparator)} for sequences that do not fit in memory.
+ * <pre>
+ * records.compose(SpillingSort.toSortedSpilling(byTimestamp, 64 &lt;&lt; 20, RECORD_CODEC))
+ * </pre>
+ * Values are collected into a run until the run holds about {@code memoryBudget} bytes, measured by
+ * the size of the encoded values; the run is then sorted and written to a temporary file.
+ * When the source completes, the sorted runs are merged, a value at a time as downstream requests them,
+ * and the last run does not go to disk. If everything fits into one run, nothing is written at all.
+ * <p>
+ * The sort is stable. Temporary files are deleted as soon as the sequence terminates or is cancelled.
+ * The objects of a run usually take a few times their encoded size on the heap, which is what
+ * {@code memoryBudget} should allow for.
+ */
+public final class SpillingSort {
+    // Encode one value in this many to estimate the size of a run
+    static final int SAMPLE_EVERY = 32;
+    // Runs merged at once, and so files open at once per level
+    static final int FAN_IN = 64;
+    static final int MIN_BUFFER = 4 * 1024;
+    static final int MAX_BUFFER = 64 * 1024;
+
+    private SpillingSort() {
+    }
+
+    public static <T> FlowableTransformer<T, T> toSortedSpilling(Comparator<? super T> comparator, long memoryBudget, Codec<T> codec) {
+        return toSortedSpilling(comparator, memoryBudget, codec, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public static <T> FlowableTransformer<T, T> toSortedSpilling(Comparator<? super T> comparator, long memoryBudget, Codec<T> codec, Path directory) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget > 0 required but it was " + memoryBudget);
+        }
+        return upstream -> Flowable.using(
+                () -> new Sorter<>(comparator, memoryBudget, codec, directory),
+                sorter -> upstream
+                        .collect(() -> sorter, Sorter::add)
+                        .flatMapPublisher(Sorter::sorted),
+                Sorter::close);
+    }
+
+    /**
+     * The state of one subscription: the run being collected and the runs already on disk.
+     */
+    static final class Sorter<T> {
+        final Comparator<? super T> comparator;
+        final long memoryBudget;
+        final Codec<T> codec;
+        final Path directory;
+        final List<Run<T>> runs = new ArrayList<>();
+        List<T> current = new ArrayList<>();
+        ByteBuffer scratch = ByteBuffer.allocate(256);
+        ByteBuffer out;
+        double averageSize;
+        long sampled;
+        long sampledBytes;
+
+        Sorter(Comparator<? super T> comparator, long memoryBudget, Codec<T> codec, Path directory) {
+            this.comparator = comparator;
+            this.memoryBudget = memoryBudget;
+            this.codec = codec;
+            this.directory = directory;
+        }
+
+        void add(T value) throws IOException {
+            if (current.size() % SAMPLE_EVERY == 0) {
+                sampledBytes += encode(value).remaining();
+                sampled++;
+                averageSize = (double) sampledBytes / sampled;
+            }
+            current.add(value);
+            if (current.size() * averageSize >= memoryBudget) {
+                current.sort(comparator);
+                Cursor<T> values = new MemoryCursor<>(current.iterator(), 0);
+                values.advance();
+                runs.add(write(values, 0));
+                current = new ArrayList<>();
+                compact();
+            }
+        }
+
+        ByteBuffer encode(T value) {
+            for (;;) {
+                scratch.clear();
+                try {
+                    codec.encode(value, scratch);
+                    scratch.flip();
+                    return scratch;
+                } catch (BufferOverflowException e) {
+                    scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+                }
+            }
+        }
+
+        /**
+         * Merges the last {@link #FAN_IN} runs into one while they are of the same level, so that no more than
+         * {@code FAN_IN} files are open per level and each value is rewritten once per level.
+         * Levels only decrease along {@link #runs}, which keeps the merged runs in their original order.
+         */
+        private void compact() throws IOException {
+            while (runs.size() >= FAN_IN) {
+                List<Run<T>> tail = runs.subList(runs.size() - FAN_IN, runs.size());
+                int level = tail.get(0).level;
+                if (tail.get(FAN_IN - 1).level != level) {
+                    return;
+                }
+                MergeCursor<T> merged = merge(tail, null);
+                merged.advance();
+                Run<T> run = write(merged, level + 1);
+                close(tail);
+                runs.add(run);
+            }
+        }
+
+        private Run<T> write(Cursor<T> values, int level) throws IOException {
+            Path file = Files.createTempFile(directory, "rx-sort-", ".run");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            Run<T> run = new Run<>(channel, level);
+            try {
+                if (out == null) {
+                    out = ByteBuffer.allocateDirect(MAX_BUFFER);
+                }
+                while (values.head != null) {
+                    ByteBuffer payload = encode(values.head);
+                    if (out.remaining() < 4 + payload.remaining()) {
+                        flush(channel, out);
+                        if (out.capacity() < 4 + payload.remaining()) {
+                            out = ByteBuffer.allocate(4 + payload.remaining());
+                        }
+                    }
+                    out.putInt(payload.remaining());
+                    out.put(payload);
+                    values.advance();
+                }
+                flush(channel, out);
+            } catch (IOException | RuntimeException e) {
+                out.clear();
+                channel.close();
+                throw e;
+            }
+            run.size = channel.position();
+            return run;
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        /**
+         * Reads the runs, and then {@code last} if there is one, as a single sorted sequence.
+         */
+        private MergeCursor<T> merge(List<Run<T>> sources, Cursor<T> last) throws IOException {
+            // Share the budget between the read buffers of all runs
+            int bufferSize = (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, memoryBudget / (sources.size() + 1)));
+            MergeCursor<T> merged = new MergeCursor<>(comparator, sources.size() + 1);
+            int order = 0;
+            for (Run<T> run : sources) {
+                merged.add(new FileCursor<>(run, codec, bufferSize, order++));
+            }
+            if (last != null) {
+                merged.add(last);
+            }
+            return merged;
+        }
+
+        Flowable<T> sorted() throws IOException {
+            current.sort(comparator);
+            if (runs.isEmpty()) {
+                return Flowable.fromIterable(current);
+            }
+            MergeCursor<T> merged = merge(runs, new MemoryCursor<>(current.iterator(), runs.size()));
+            return Flowable.generate(() -> merged, (cursor, emitter) -> {
+                if (cursor.advance()) {
+                    emitter.onNext(cursor.head);
+                } else {
+                    emitter.onComplete();
+                }
+            });
+        }
+
+        void close() {
+            current = null;
+            close(runs);
+        }
+
+        private static <T> void close(List<Run<T>> runs) {
+            for (Run<T> run : runs) {
+                try {
+                    run.channel.close();
+                } catch (IOException ignore) {
+                    // The file is deleted on close; nothing else can be done about it
+                }
+            }
+            runs.clear();
+        }
+    }
+
+    static final class Run<T> {
+        final FileChannel channel;
+        // How many times its values have been merged
+        final int level;
+        long size;
+
+        Run(FileChannel channel, int level) {
+            this.channel = channel;
+            this.level = level;
+        }
+    }
+
+    abstract static class Cursor<T> {
+        // Breaks ties between runs in the order the runs were collected, which keeps the sort stable
+        final int order;
+        T head;
+
+        Cursor(int order) {
+            this.order = order;
+        }
+
+        abstract boolean advance() throws IOException;
+    }
+
+    static final class MemoryCursor<T> extends Cursor<T> {
+        final Iterator<T> values;
+
+        MemoryCursor(Iterator<T> values, int order) {
+            super(order);
+            this.values = values;
+        }
+
+        @Override
+        boolean advance() {
+            if (values.hasNext()) {
+                head = values.next();
+                return true;
+            }
+            head = null;
+            return false;
+        }
+    }
+
+    /**
+     * The smallest head of its cursors, the earliest cursor first on ties.
+     */
+    static final class MergeCursor<T> extends Cursor<T> {
+        final PriorityQueue<Cursor<T>> heads;
+        Cursor<T> taken;
+
+        MergeCursor(Comparator<? super T> comparator, int capacity) {
+            super(0);
+            heads = new PriorityQueue<>(capacity, (a, b) -> {
+                int c = comparator.compare(a.head, b.head);
+                return c != 0 ? c : Integer.compare(a.order, b.order);
+            });
+        }
+
+        void add(Cursor<T> cursor) throws IOException {
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            // The cursor of the previous head moves on only now, so that its value is not overwritten before use
+            if (taken != null) {
+                add(taken);
+            }
+            taken = heads.poll();
+            if (taken == null) {
+                head = null;
+                return false;
+            }
+            head = taken.head;
+            return true;
+        }
+    }
+
+    /**
+     * Reads the {@code [int length][payload]} records of a run through a buffer.
+     */
+    static final class FileCursor<T> extends Cursor<T> {
+        final Run<T> run;
+        final Codec<T> codec;
+        ByteBuffer buffer;
+        long position;
+
+        FileCursor(Run<T> run, Codec<T> codec, int bufferSize, int order) {
+            super(order);
+            this.run = run;
+            this.codec = codec;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            this.buffer.limit(0);
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (!fill(4)) {
+                head = null;
+                return false;
+            }
+            int length = buffer.getInt();
+            if (!fill(length)) {
+                throw new IOException("Truncated run: expected " + length + " bytes at " + position);
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            head = codec.decode(payload);
+            buffer.position(buffer.position() + length);
+            return true;
+        }
+
+        /**
+         * Makes sure that at least {@code n} bytes are buffered, unless the run ends first.
+         */
+        private boolean fill(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return true;
+            }
+            if (buffer.capacity() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(n);
+                bigger.put(buffer);
+                buffer = bigger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < n && position < run.size) {
+                int read = run.channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= n;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package operator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * {@code takeLast} and {@code skipLast} over an array of {@code count} slots, allocated once per subscription.
+ * <pre>
+ * events.compose(TakeSkipLast.takeLast(10_000))
+ * events.compose(TakeSkipLast.takeLast(10_000, 1, TimeUnit.MINUTES))
+ * </pre>
+ * The last {@code count} values are kept in a ring: each value overwrites the oldest one, so nothing is
+ * allocated per value, and the slots are cleared as they are emitted. The built-in operators grow a queue
+ * instead, which for a long source means copying it as it grows, or a node per value in the time-based
+ * {@code takeLast}, which also boxes the time of every value.
+ * <p>
+ * The time-based {@link #takeLast(int, long, TimeUnit, Scheduler)} keeps the times in a {@code long[]} next to
+ * the values, and emits the values that arrived less than {@code time} before the source completed.
+ */
+public final class TakeSkipLast {
+
+    private TakeSkipLast() {
+    }
+
+    /**
+     * Emits the last {@code count} values once the source completes.
+     */
+    public static <T> ObservableTransformer<T, T> takeLast(int count) {
+        checkCount(count);
+        if (count == 0) {
+            return upstream -> upstream.ignoreElements().toObservable();
+        }
+        return upstream -> new RingObservable<>(upstream, count, 0L, null);
+    }
+
+    /**
+     * Emits all values except the last {@code count}, each one {@code count} values after it arrived.
+     */
+    public static <T> ObservableTransformer<T, T> skipLast(int count) {
+        checkCount(count);
+        if (count == 0) {
+            return upstream -> upstream;
+        }
+        return upstream -> new RingObservable<>(upstream, count, -1L, null);
+    }
+
+    public static <T> ObservableTransformer<T, T> takeLast(int count, long time, TimeUnit unit) {
+        return takeLast(count, time, unit, Schedulers.computation());
+    }
+
+    /**
+     * Emits at most the last {@code count} values, of those that arrived less than {@code time}
+     * before the source completed, according to {@code scheduler}.
+     */
+    public static <T> ObservableTransformer<T, T> takeLast(int count, long time, TimeUnit unit, Scheduler scheduler) {
+        checkCount(count);
+        if (time < 0) {
+            throw new IllegalArgumentException("time >= 0 required but it was " + time);
+        }
+        if (count == 0) {
+            return upstream -> upstream.ignoreElements().toObservable();
+        }
+        long timeNanos = unit.toNanos(time);
+        return upstream -> new RingObservable<>(upstream, count, timeNanos, scheduler);
+    }
+
+    private static void checkCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+    }
+
+    static final class RingObservable<T> extends Observable<T> {
+        final ObservableSource<T> source;
+        final int count;
+        // -1 to skip the last values, otherwise the time to take them within, if there is a scheduler
+        final long timeNanos;
+        final Scheduler scheduler;
+
+        RingObservable(ObservableSource<T> source, int count, long timeNanos, Scheduler scheduler) {
+            this.source = source;
+            this.count = count;
+            this.timeNanos = timeNanos;
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        protected void subscribeActual(Observer<? super T> observer) {
+            if (timeNanos < 0) {
+                source.subscribe(new SkipLastObserver<>(observer, count));
+            } else if (scheduler == null) {
+                source.subscribe(new TakeLastObserver<>(observer, count));
+            } else {
+                source.subscribe(new TakeLastTimedObserver<>(observer, count, timeNanos, scheduler));
+            }
+        }
+    }
+
+    /**
+     * Holds the last values in {@code ring}, where {@code next} is the slot of the next value,
+     * and so of the oldest one once {@code size} reaches the length of the ring.
+     */
+    abstract static class RingObserver<T> implements Observer<T>, Disposable {
+        final Observer<? super T> downstream;
+        final Object[] ring;
+        Disposable upstream;
+        int next;
+        int size;
+        boolean done;
+        volatile boolean disposed;
+
+        RingObserver(Observer<? super T> downstream, int count) {
+            this.downstream = downstream;
+            this.ring = new Object[count];
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            if (upstream != null) {
+                d.dispose();
+                RxJavaPlugins.onError(new IllegalStateException("Disposable already set!"));
+                return;
+            }
+            upstream = d;
+            downstream.onSubscribe(this);
+        }
+
+        /**
+         * Stores a value in the slot of the oldest one.
+         *
+         * @return the slot the value went to
+         */
+        final int store(T t) {
+            int slot = next;
+            ring[slot] = t;
+            if (++next == ring.length) {
+                next = 0;
+            }
+            if (size < ring.length) {
+                size++;
+            }
+            return slot;
+        }
+
+        final int oldest() {
+            return size < ring.length ? 0 : next;
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            Arrays.fill(ring, null);
+            downstream.onError(e);
+        }
+
+        /**
+         * Emits the values from {@code skip} values after the oldest one, clearing their slots, then completes.
+         */
+        @SuppressWarnings("unchecked")
+        final void emit(int skip) {
+            int slot = oldest();
+            for (int i = 0; i < size; i++) {
+                if (disposed) {
+                    Arrays.fill(ring, null);
+                    return;
+                }
+                Object v = ring[slot];
+                ring[slot] = null;
+                if (i >= skip) {
+                    downstream.onNext((T) v);
+                }
+                if (++slot == ring.length) {
+                    slot = 0;
+                }
+            }
+            if (!disposed) {
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+            upstream.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    static final class TakeLastObserver<T> extends RingObserver<T> {
+
+        TakeLastObserver(Observer<? super T> downstream, int count) {
+            super(downstream, count);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!done) {
+                store(t);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            emit(0);
+        }
+    }
+
+    static final class SkipLastObserver<T> extends RingObserver<T> {
+
+        SkipLastObserver(Observer<? super T> downstream, int count) {
+            super(downstream, count);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onNext(T t) {
+            if (done) {
+                return;
+            }
+            if (size < ring.length) {
+                store(t);
+                return;
+            }
+            // The ring is full, so next is the slot of the oldest value, which now has count values after it
+            T oldest = (T) ring[next];
+            store(t);
+            downstream.onNext(oldest);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            Arrays.fill(ring, null);
+            downstream.onComplete();
+        }
+    }
+
+    static final class TakeLastTimedObserver<T> extends RingObserver<T> {
+        final long timeNanos;
+        final Scheduler scheduler;
+        // The arrival time of the value in the same slot of the ring
+        final long[] times;
+
+        TakeLastTimedObserver(Observer<? super T> downstream, int count, long timeNanos, Scheduler scheduler) {
+            super(downstream, count);
+            this.timeNanos = timeNanos;
+            this.scheduler = scheduler;
+            this.times = new long[count];
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (!done) {
+                times[store(t)] = scheduler.now(TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            // The times increase from the oldest value, so the values that are too old are a prefix
+            long oldestAllowed = scheduler.now(TimeUnit.NANOSECONDS) - timeNanos;
+            int skip = 0;
+            for (int slot = oldest(); skip < size && times[slot] < oldestAllowed; skip++) {
+                if (++slot == ring.length) {
+                    slot = 0;
+                }
+            }
+            emit(skip);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package primitive;
+
+import java.util.Arrays;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableConverter;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * Aggregations over chunks of primitives, instead of one {@code BiFunction} call per boxed value.
+ * <pre>
+ * Observable.range(0, 10_000_000)
+ *         .compose(Chunks.ints(1024))
+ *         .as(Chunks.reduceInts())
+ *         .subscribe(stats -&gt; System.out.println(stats.mean + " " + stats.variance()));
+ * </pre>
+ * {@link #ints}, {@link #longs} and {@link #doubles} pack values into arrays, like {@code buffer(size)};
+ * {@link IntObservable#chunks} and {@link LongObservable#chunks} do the same without boxing at all.
+ * The scan variants emit the {@link Stats} of everything so far after each chunk,
+ * and the reduce variants only the final one.
+ */
+public final class Chunks {
+
+    private Chunks() {
+    }
+
+    //Packing
+
+    public static ObservableTransformer<Integer, int[]> ints(int size) {
+        checkSize(size);
+        return upstream -> new Observable<int[]>() {
+            @Override
+            protected void subscribeActual(Observer<? super int[]> observer) {
+                upstream.subscribe(new IntPacker(observer, size));
+            }
+        };
+    }
+
+    public static ObservableTransformer<Long, long[]> longs(int size) {
+        checkSize(size);
+        return upstream -> new Observable<long[]>() {
+            @Override
+            protected void subscribeActual(Observer<? super long[]> observer) {
+                upstream.subscribe(new LongPacker(observer, size));
+            }
+        };
+    }
+
+    public static ObservableTransformer<Double, double[]> doubles(int size) {
+        checkSize(size);
+        return upstream -> new Observable<double[]>() {
+            @Override
+            protected void subscribeActual(Observer<? super double[]> observer) {
+                upstream.subscribe(new DoublePacker(observer, size));
+            }
+        };
+    }
+
+    static void checkSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size > 0 required but it was " + size);
+        }
+    }
+
+    //Aggregations
+
+    public static ObservableTransformer<int[], Stats> scanInts() {
+        return upstream -> upstream.map(Stats::of).scan(Stats::combine);
+    }
+
+    public static ObservableTransformer<long[], Stats> scanLongs() {
+        return upstream -> upstream.map(Stats::of).scan(Stats::combine);
+    }
+
+    public static ObservableTransformer<double[], Stats> scanDoubles() {
+        return upstream -> upstream.map(Stats::of).scan(Stats::combine);
+    }
+
+    public static ObservableConverter<int[], Single<Stats>> reduceInts() {
+        return upstream -> upstream.map(Stats::of).reduce(Stats.EMPTY, Stats::combine);
+    }
+
+    public static ObservableConverter<long[], Single<Stats>> reduceLongs() {
+        return upstream -> upstream.map(Stats::of).reduce(Stats.EMPTY, Stats::combine);
+    }
+
+    public static ObservableConverter<double[], Single<Stats>> reduceDoubles() {
+        return upstream -> upstream.map(Stats::of).reduce(Stats.EMPTY, Stats::combine);
+    }
+
+    /**
+     * Packs values into arrays of {@code size} and emits each one once it is full; the last one is trimmed to
+     * what is left. Subclasses store a value of their own type in {@link #chunk()} at {@link #length},
+     * then call {@link #stored()}, so that primitive sources need not box them.
+     */
+    abstract static class ChunkPacker<A> {
+        final Observer<? super A> downstream;
+        final int size;
+        A chunk;
+        int length;
+        boolean done;
+
+        ChunkPacker(Observer<? super A> downstream, int size) {
+            this.downstream = downstream;
+            this.size = size;
+        }
+
+        abstract A create(int length);
+
+        abstract A trim(A chunk, int length);
+
+        /**
+         * The array to store the next value in, or null once terminated.
+         */
+        final A chunk() {
+            if (done) {
+                return null;
+            }
+            if (chunk == null) {
+                chunk = create(size);
+            }
+            return chunk;
+        }
+
+        final void stored() {
+            if (++length == size) {
+                A full = chunk;
+                chunk = null;
+                length = 0;
+                downstream.onNext(full);
+            }
+        }
+
+        public final void onSubscribe(Disposable d) {
+            downstream.onSubscribe(d);
+        }
+
+        public final void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            chunk = null;
+            downstream.onError(e);
+        }
+
+        public final void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (chunk != null) {
+                A last = trim(chunk, length);
+                chunk = null;
+                downstream.onNext(last);
+            }
+            downstream.onComplete();
+        }
+    }
+
+    static final class IntPacker extends ChunkPacker<int[]> implements IntObserver, Observer<Integer> {
+        IntPacker(Observer<? super int[]> downstream, int size) {
+            super(downstream, size);
+        }
+
+        @Override
+        public void onNext(int value) {
+            int[] c = chunk();
+            if (c != null) {
+                c[length] = value;
+                stored();
+            }
+        }
+
+        @Override
+        public void onNext(Integer value) {
+            onNext(value.intValue());
+        }
+
+        @Override
+        int[] create(int length) {
+            return new int[length];
+        }
+
+        @Override
+        int[] trim(int[] chunk, int length) {
+            return Arrays.copyOf(chunk, length);
+        }
+    }
+
+    static final class LongPacker extends ChunkPacker<long[]> implements LongObserver, Observer<Long> {
+        LongPacker(Observer<? super long[]> downstream, int size) {
+            super(downstream, size);
+        }
+
+        @Override
+        public void onNext(long value) {
+            long[] c = chunk();
+            if (c != null) {
+                c[length] = value;
+                stored();
+            }
+        }
+
+        @Override
+        public void onNext(Long value) {
+            onNext(value.longValue());
+        }
+
+        @Override
+        long[] create(int length) {
+            return new long[length];
+        }
+
+        @Override
+        long[] trim(long[] chunk, int length) {
+            return Arrays.copyOf(chunk, length);
+        }
+    }
+
+    static final class DoublePacker extends ChunkPacker<double[]> implements Observer<Double> {
+        DoublePacker(Observer<? super double[]> downstream, int size) {
+            super(downstream, size);
+        }
+
+        @Override
+        public void onNext(Double value) {
+            double[] c = chunk();
+            if (c != null) {
+                c[length] = value;
+                stored();
+            }
+        }
+
+        @Override
+        double[] create(int length) {
+            return new double[length];
+        }
+
+        @Override
+        double[] trim(double[] chunk, int length) {
+            return Arrays.copyOf(chunk, length);
+        }
+    }
+}
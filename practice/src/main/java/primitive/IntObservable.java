@@ -0,0 +1,434 @@
+package primitive;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * A sequence of primitive ints. Values stay unboxed through map/filter/scan and the aggregations;
+ * only {@link #boxed()} and the final result of an aggregation produce {@code Integer}s.
+ * <pre>
+ * IntObservable.range(0, 1_000_000)
+ *         .filter(i -&gt; i % 2 == 0)
+ *         .map(i -&gt; i * 3)
+ *         .sum()
+ *         .subscribe(new PrintSubscriber("Sum"));
+ * </pre>
+ */
+public abstract class IntObservable {
+
+    public abstract void subscribe(IntObserver observer);
+
+    //Sources
+
+    public static IntObservable range(int start, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if ((long) start + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Integer overflow");
+        }
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                Disposable d = Disposables.empty();
+                observer.onSubscribe(d);
+                int end = start + count;
+                for (int i = start; i != end; i++) {
+                    if (d.isDisposed()) {
+                        return;
+                    }
+                    observer.onNext(i);
+                }
+                if (!d.isDisposed()) {
+                    observer.onComplete();
+                }
+            }
+        };
+    }
+
+    /**
+     * Unboxes an existing sequence. A null value terminates the sequence with a NullPointerException.
+     */
+    public static IntObservable from(Observable<Integer> source) {
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                source.subscribe(new Observer<Integer>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        observer.onSubscribe(d);
+                    }
+
+                    @Override
+                    public void onNext(Integer value) {
+                        observer.onNext(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        observer.onError(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        observer.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    //Intermediate operators
+
+    public final IntObservable map(IntUnaryOperator mapper) {
+        IntObservable upstream = this;
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    @Override
+                    public void onNext(int value) {
+                        if (done) {
+                            return;
+                        }
+                        int mapped;
+                        try {
+                            mapped = mapper.applyAsInt(value);
+                        } catch (Throwable e) {
+                            fail(e);
+                            return;
+                        }
+                        downstream.onNext(mapped);
+                    }
+                });
+            }
+        };
+    }
+
+    public final IntObservable filter(IntPredicate predicate) {
+        IntObservable upstream = this;
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    @Override
+                    public void onNext(int value) {
+                        if (done) {
+                            return;
+                        }
+                        boolean keep;
+                        try {
+                            keep = predicate.test(value);
+                        } catch (Throwable e) {
+                            fail(e);
+                            return;
+                        }
+                        if (keep) {
+                            downstream.onNext(value);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Emits the first {@code count} values and completes.
+     */
+    public final IntObservable take(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        IntObservable upstream = this;
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    long remaining = count;
+
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        super.onSubscribe(d);
+                        if (remaining == 0) {
+                            done = true;
+                            d.dispose();
+                            downstream.onComplete();
+                        }
+                    }
+
+                    @Override
+                    public void onNext(int value) {
+                        if (done) {
+                            return;
+                        }
+                        downstream.onNext(value);
+                        if (--remaining == 0) {
+                            done = true;
+                            upstream.dispose();
+                            downstream.onComplete();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Emits the running accumulation, starting with the first value as it is.
+     */
+    public final IntObservable scan(IntBinaryOperator accumulator) {
+        IntObservable upstream = this;
+        return new IntObservable() {
+            @Override
+            public void subscribe(IntObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    boolean hasValue;
+                    int acc;
+
+                    @Override
+                    public void onNext(int value) {
+                        if (done) {
+                            return;
+                        }
+                        if (hasValue) {
+                            try {
+                                acc = accumulator.applyAsInt(acc, value);
+                            } catch (Throwable e) {
+                                fail(e);
+                                return;
+                            }
+                        } else {
+                            acc = value;
+                            hasValue = true;
+                        }
+                        downstream.onNext(acc);
+                    }
+                });
+            }
+        };
+    }
+
+    public final LongObservable asLongObservable() {
+        IntObservable upstream = this;
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                upstream.subscribe(new IntObserver() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        observer.onSubscribe(d);
+                    }
+
+                    @Override
+                    public void onNext(int value) {
+                        observer.onNext(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        observer.onError(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        observer.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Packs the values into arrays of {@code size}, the last one trimmed to what is left,
+     * for the chunked aggregations of {@link Chunks}.
+     */
+    public final Observable<int[]> chunks(int size) {
+        Chunks.checkSize(size);
+        IntObservable upstream = this;
+        return new Observable<int[]>() {
+            @Override
+            protected void subscribeActual(Observer<? super int[]> observer) {
+                upstream.subscribe(new Chunks.IntPacker(observer, size));
+            }
+        };
+    }
+
+    //Aggregations. Only the final result is boxed.
+
+    public final Maybe<Integer> reduce(IntBinaryOperator accumulator) {
+        return Maybe.create(emitter -> subscribe(new Reducer(emitter, accumulator, false, 0)));
+    }
+
+    public final Single<Integer> reduce(int seed, IntBinaryOperator accumulator) {
+        return Maybe.<Integer>create(emitter -> subscribe(new Reducer(emitter, accumulator, true, seed)))
+                .toSingle();
+    }
+
+    public final Single<Integer> sum() {
+        return reduce(0, Integer::sum);
+    }
+
+    public final Maybe<Integer> min() {
+        return reduce(Math::min);
+    }
+
+    public final Maybe<Integer> max() {
+        return reduce(Math::max);
+    }
+
+    public final Single<Long> count() {
+        return asLongObservable().map(v -> 1L).sum();
+    }
+
+    public final Observable<Integer> boxed() {
+        IntObservable upstream = this;
+        return new Observable<Integer>() {
+            @Override
+            protected void subscribeActual(Observer<? super Integer> observer) {
+                upstream.subscribe(new IntObserver() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        observer.onSubscribe(d);
+                    }
+
+                    @Override
+                    public void onNext(int value) {
+                        observer.onNext(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        observer.onError(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        observer.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    static final class Reducer implements IntObserver {
+        final MaybeEmitter<Integer> emitter;
+        final IntBinaryOperator accumulator;
+        Disposable upstream;
+        boolean done;
+        boolean hasValue;
+        int acc;
+
+        Reducer(MaybeEmitter<Integer> emitter, IntBinaryOperator accumulator, boolean hasSeed, int seed) {
+            this.emitter = emitter;
+            this.accumulator = accumulator;
+            this.hasValue = hasSeed;
+            this.acc = seed;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            upstream = d;
+            emitter.setDisposable(d);
+        }
+
+        @Override
+        public void onNext(int value) {
+            if (done) {
+                return;
+            }
+            if (!hasValue) {
+                acc = value;
+                hasValue = true;
+                return;
+            }
+            try {
+                acc = accumulator.applyAsInt(acc, value);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                done = true;
+                upstream.dispose();
+                emitter.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            emitter.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (hasValue) {
+                emitter.onSuccess(acc);
+            } else {
+                emitter.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Common plumbing of the intermediate operators: keeps the upstream disposable
+     * and stops forwarding once the stage has failed.
+     */
+    abstract static class Stage implements IntObserver {
+        final IntObserver downstream;
+        Disposable upstream;
+        boolean done;
+
+        Stage(IntObserver downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            upstream = d;
+            downstream.onSubscribe(d);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            downstream.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            downstream.onComplete();
+        }
+
+        void fail(Throwable e) {
+            Exceptions.throwIfFatal(e);
+            done = true;
+            upstream.dispose();
+            downstream.onError(e);
+        }
+    }
+}
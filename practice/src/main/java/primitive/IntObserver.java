@@ -0,0 +1,16 @@
+package primitive;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * The {@link io.reactivex.Observer} of an {@link IntObservable}: values arrive as primitive ints.
+ */
+public interface IntObserver {
+    void onSubscribe(Disposable d);
+
+    void onNext(int value);
+
+    void onError(Throwable e);
+
+    void onComplete();
+}
@@ -0,0 +1,440 @@
+package primitive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * A sequence of primitive longs. Values stay unboxed through map/filter/scan and the aggregations;
+ * only {@link #boxed()} and the final result of an aggregation produce {@code Long}s.
+ * <pre>
+ * LongObservable.interval(1, TimeUnit.MILLISECONDS)
+ *         .take(1000)
+ *         .filter(i -&gt; i % 2 == 0)
+ *         .map(i -&gt; i * 3)
+ *         .sum()
+ *         .subscribe(new PrintSubscriber("Sum"));
+ * </pre>
+ */
+public abstract class LongObservable {
+
+    public abstract void subscribe(LongObserver observer);
+
+    //Sources
+
+    public static LongObservable range(long start, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        if (start > 0 && start - 1 + count < 0) {
+            throw new IllegalArgumentException("Overflow! start + count is bigger than Long.MAX_VALUE");
+        }
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                Disposable d = Disposables.empty();
+                observer.onSubscribe(d);
+                long end = start + count;
+                for (long i = start; i != end; i++) {
+                    if (d.isDisposed()) {
+                        return;
+                    }
+                    observer.onNext(i);
+                }
+                if (!d.isDisposed()) {
+                    observer.onComplete();
+                }
+            }
+        };
+    }
+
+    public static LongObservable interval(long period, TimeUnit unit) {
+        return interval(period, period, unit, Schedulers.computation());
+    }
+
+    public static LongObservable interval(long initialDelay, long period, TimeUnit unit) {
+        return interval(initialDelay, period, unit, Schedulers.computation());
+    }
+
+    /**
+     * Emits 0, 1, 2, ... every {@code period}, counting in a primitive field.
+     */
+    public static LongObservable interval(long initialDelay, long period, TimeUnit unit, Scheduler scheduler) {
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                SerialDisposable d = new SerialDisposable();
+                observer.onSubscribe(d);
+                d.replace(scheduler.schedulePeriodicallyDirect(new Runnable() {
+                    long count;
+
+                    @Override
+                    public void run() {
+                        if (!d.isDisposed()) {
+                            observer.onNext(count++);
+                        }
+                    }
+                }, initialDelay, period, unit));
+            }
+        };
+    }
+
+    /**
+     * Unboxes an existing sequence. A null value terminates the sequence with a NullPointerException.
+     */
+    public static LongObservable from(Observable<Long> source) {
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                source.subscribe(new Observer<Long>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        observer.onSubscribe(d);
+                    }
+
+                    @Override
+                    public void onNext(Long value) {
+                        observer.onNext(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        observer.onError(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        observer.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    //Intermediate operators
+
+    public final LongObservable map(LongUnaryOperator mapper) {
+        LongObservable upstream = this;
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    @Override
+                    public void onNext(long value) {
+                        if (done) {
+                            return;
+                        }
+                        long mapped;
+                        try {
+                            mapped = mapper.applyAsLong(value);
+                        } catch (Throwable e) {
+                            fail(e);
+                            return;
+                        }
+                        downstream.onNext(mapped);
+                    }
+                });
+            }
+        };
+    }
+
+    public final LongObservable filter(LongPredicate predicate) {
+        LongObservable upstream = this;
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    @Override
+                    public void onNext(long value) {
+                        if (done) {
+                            return;
+                        }
+                        boolean keep;
+                        try {
+                            keep = predicate.test(value);
+                        } catch (Throwable e) {
+                            fail(e);
+                            return;
+                        }
+                        if (keep) {
+                            downstream.onNext(value);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Emits the first {@code count} values and completes.
+     */
+    public final LongObservable take(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count >= 0 required but it was " + count);
+        }
+        LongObservable upstream = this;
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    long remaining = count;
+
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        super.onSubscribe(d);
+                        if (remaining == 0) {
+                            done = true;
+                            d.dispose();
+                            downstream.onComplete();
+                        }
+                    }
+
+                    @Override
+                    public void onNext(long value) {
+                        if (done) {
+                            return;
+                        }
+                        downstream.onNext(value);
+                        if (--remaining == 0) {
+                            done = true;
+                            upstream.dispose();
+                            downstream.onComplete();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Emits the running accumulation, starting with the first value as it is.
+     */
+    public final LongObservable scan(LongBinaryOperator accumulator) {
+        LongObservable upstream = this;
+        return new LongObservable() {
+            @Override
+            public void subscribe(LongObserver observer) {
+                upstream.subscribe(new Stage(observer) {
+                    boolean hasValue;
+                    long acc;
+
+                    @Override
+                    public void onNext(long value) {
+                        if (done) {
+                            return;
+                        }
+                        if (hasValue) {
+                            try {
+                                acc = accumulator.applyAsLong(acc, value);
+                            } catch (Throwable e) {
+                                fail(e);
+                                return;
+                            }
+                        } else {
+                            acc = value;
+                            hasValue = true;
+                        }
+                        downstream.onNext(acc);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Packs the values into arrays of {@code size}, the last one trimmed to what is left,
+     * for the chunked aggregations of {@link Chunks}.
+     */
+    public final Observable<long[]> chunks(int size) {
+        Chunks.checkSize(size);
+        LongObservable upstream = this;
+        return new Observable<long[]>() {
+            @Override
+            protected void subscribeActual(Observer<? super long[]> observer) {
+                upstream.subscribe(new Chunks.LongPacker(observer, size));
+            }
+        };
+    }
+
+    //Aggregations. Only the final result is boxed.
+
+    public final Maybe<Long> reduce(LongBinaryOperator accumulator) {
+        return Maybe.create(emitter -> subscribe(new Reducer(emitter, accumulator, false, 0L)));
+    }
+
+    public final Single<Long> reduce(long seed, LongBinaryOperator accumulator) {
+        return Maybe.<Long>create(emitter -> subscribe(new Reducer(emitter, accumulator, true, seed)))
+                .toSingle();
+    }
+
+    public final Single<Long> sum() {
+        return reduce(0, Long::sum);
+    }
+
+    public final Maybe<Long> min() {
+        return reduce(Math::min);
+    }
+
+    public final Maybe<Long> max() {
+        return reduce(Math::max);
+    }
+
+    public final Single<Long> count() {
+        return map(v -> 1L).sum();
+    }
+
+    public final Observable<Long> boxed() {
+        LongObservable upstream = this;
+        return new Observable<Long>() {
+            @Override
+            protected void subscribeActual(Observer<? super Long> observer) {
+                upstream.subscribe(new LongObserver() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        observer.onSubscribe(d);
+                    }
+
+                    @Override
+                    public void onNext(long value) {
+                        observer.onNext(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        observer.onError(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        observer.onComplete();
+                    }
+                });
+            }
+        };
+    }
+
+    static final class Reducer implements LongObserver {
+        final MaybeEmitter<Long> emitter;
+        final LongBinaryOperator accumulator;
+        Disposable upstream;
+        boolean done;
+        boolean hasValue;
+        long acc;
+
+        Reducer(MaybeEmitter<Long> emitter, LongBinaryOperator accumulator, boolean hasSeed, long seed) {
+            this.emitter = emitter;
+            this.accumulator = accumulator;
+            this.hasValue = hasSeed;
+            this.acc = seed;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            upstream = d;
+            emitter.setDisposable(d);
+        }
+
+        @Override
+        public void onNext(long value) {
+            if (done) {
+                return;
+            }
+            if (!hasValue) {
+                acc = value;
+                hasValue = true;
+                return;
+            }
+            try {
+                acc = accumulator.applyAsLong(acc, value);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                done = true;
+                upstream.dispose();
+                emitter.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            emitter.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (hasValue) {
+                emitter.onSuccess(acc);
+            } else {
+                emitter.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Common plumbing of the intermediate operators: keeps the upstream disposable
+     * and stops forwarding once the stage has failed.
+     */
+    abstract static class Stage implements LongObserver {
+        final LongObserver downstream;
+        Disposable upstream;
+        boolean done;
+
+        Stage(LongObserver downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            upstream = d;
+            downstream.onSubscribe(d);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done) {
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            done = true;
+            downstream.onError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            downstream.onComplete();
+        }
+
+        void fail(Throwable e) {
+            Exceptions.throwIfFatal(e);
+            done = true;
+            upstream.dispose();
+            downstream.onError(e);
+        }
+    }
+}
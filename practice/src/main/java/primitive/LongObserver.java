@@ -0,0 +1,16 @@
+package primitive;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * The {@link io.reactivex.Observer} of a {@link LongObservable}: values arrive as primitive longs.
+ */
+public interface LongObserver {
+    void onSubscribe(Disposable d);
+
+    void onNext(long value);
+
+    void onError(Throwable e);
+
+    void onComplete();
+}
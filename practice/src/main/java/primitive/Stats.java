@@ -0,0 +1,153 @@
+package primitive;
+
+/**
+ * Count, sum, min, max, mean and variance of a sequence of numbers, computed a chunk at a time.
+ * <p>
+ * Each chunk is summarized by {@link #of} in two tight loops over the array, with no calls or boxing,
+ * which the JIT unrolls and, where the JVM supports it, vectorizes; the variance is computed from the
+ * chunk's own mean, so it stays accurate for large values. Chunks are then {@link #combine combined}
+ * in order. Sums of ints and longs are exact within a chunk, and kept as doubles across chunks; a sum of longs
+ * that does not fit in a long is kept to within the precision of a double instead of overflowing.
+ */
+public final class Stats {
+    public static final Stats EMPTY = new Stats(0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 0);
+
+    public final long count;
+    public final double sum;
+    public final double min;
+    public final double max;
+    public final double mean;
+    // Sum of squared differences from the mean
+    final double m2;
+
+    Stats(long count, double sum, double min, double max, double mean, double m2) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public static Stats of(int[] chunk) {
+        int n = chunk.length;
+        if (n == 0) {
+            return EMPTY;
+        }
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int v = chunk[i];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double mean = (double) sum / n;
+        double m2 = 0;
+        for (int i = 0; i < n; i++) {
+            double d = chunk[i] - mean;
+            m2 += d * d;
+        }
+        return new Stats(n, sum, min, max, mean, m2);
+    }
+
+    public static Stats of(long[] chunk) {
+        int n = chunk.length;
+        if (n == 0) {
+            return EMPTY;
+        }
+        // Summed in 32-bit halves, signed high and unsigned low, which cannot overflow for any array
+        long high = 0;
+        long low = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            long v = chunk[i];
+            high += v >> 32;
+            low += v & 0xFFFFFFFFL;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double sum = sum(high, low);
+        double mean = sum / n;
+        double m2 = 0;
+        for (int i = 0; i < n; i++) {
+            double d = chunk[i] - mean;
+            m2 += d * d;
+        }
+        return new Stats(n, sum, min, max, mean, m2);
+    }
+
+    /**
+     * {@code high * 2^32 + low}, rounded once when it fits in a long.
+     */
+    private static double sum(long high, long low) {
+        high += low >>> 32;
+        low &= 0xFFFFFFFFL;
+        if (high >= Integer.MIN_VALUE && high <= Integer.MAX_VALUE) {
+            return (high << 32) + low;
+        }
+        return high * 0x1p32 + low;
+    }
+
+    public static Stats of(double[] chunk) {
+        int n = chunk.length;
+        if (n == 0) {
+            return EMPTY;
+        }
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double v = chunk[i];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double mean = sum / n;
+        double m2 = 0;
+        for (int i = 0; i < n; i++) {
+            double d = chunk[i] - mean;
+            m2 += d * d;
+        }
+        return new Stats(n, sum, min, max, mean, m2);
+    }
+
+    /**
+     * The statistics of this sequence followed by {@code other}.
+     */
+    public Stats combine(Stats other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long n = count + other.count;
+        double delta = other.mean - mean;
+        double combinedMean = mean + delta * other.count / n;
+        double combinedM2 = m2 + other.m2 + delta * delta * ((double) count * other.count / n);
+        return new Stats(n, sum + other.sum, Math.min(min, other.min), Math.max(max, other.max), combinedMean, combinedM2);
+    }
+
+    /**
+     * The population variance, or NaN if there are no values.
+     */
+    public double variance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * The sample variance, or NaN if there are fewer than two values.
+     */
+    public double sampleVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Stats{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max
+                + ", mean=" + mean + ", variance=" + variance() + "}";
+    }
+}
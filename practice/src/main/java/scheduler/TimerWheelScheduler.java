@@ -0,0 +1,308 @@
+package scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import util.MpscLinkedQueue;
+
+/**
+ * A {@link Scheduler} for very many delayed tasks, most of which are disposed before they run,
+ * like the timers of {@code timeout} on every in-flight request.
+ * <pre>
+ * Scheduler timeouts = new TimerWheelScheduler(10, TimeUnit.MILLISECONDS);
+ * requests.flatMap(r -&gt; call(r).timeout(5, TimeUnit.SECONDS, timeouts))
+ * </pre>
+ * The executors behind {@code Schedulers.computation()} keep the delayed tasks in a heap, so scheduling
+ * and disposing take {@code O(log n)} under a lock. Here time is cut into ticks of {@code tickDuration},
+ * and a task goes into the bucket of the tick it is due in, on a wheel of {@code wheelSize} buckets:
+ * scheduling and disposing are a queue offer, and the wheel thread adds or removes the task from its bucket's
+ * linked list in {@code O(1)}. A task due more than {@code wheelSize} ticks away waits in its bucket
+ * for as many turns of the wheel.
+ * <p>
+ * A task runs at the end of the tick it is due in, so up to one {@code tickDuration} late, but never early;
+ * tasks without delay run as soon as the wheel thread is free. Every task runs on the one wheel thread,
+ * which keeps the tasks of a {@link Worker} in order and makes the wheel itself single-threaded,
+ * so the tasks should be short, like signalling a timeout. Move longer work to another scheduler with
+ * {@code observeOn}. The wheel thread wakes up every tick, even when there is nothing to run.
+ */
+public final class TimerWheelScheduler extends Scheduler {
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    static final int WAITING = 0;
+    static final int RUNNING = 1;
+    static final int CANCELLED = 2;
+
+    static final AtomicInteger THREADS = new AtomicInteger();
+
+    final long tickNanos;
+    final long startNanos;
+    final Bucket[] wheel;
+    final int mask;
+    // Tasks are handed to the wheel thread through these, so that only it touches the buckets
+    final MpscLinkedQueue<Task> pending = new MpscLinkedQueue<>();
+    final MpscLinkedQueue<Task> ready = new MpscLinkedQueue<>();
+    final MpscLinkedQueue<Task> cancelled = new MpscLinkedQueue<>();
+    final Thread thread;
+    volatile boolean sleeping;
+    volatile boolean shutdown;
+
+    public TimerWheelScheduler(long tickDuration, TimeUnit unit) {
+        this(tickDuration, unit, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param wheelSize the number of buckets, rounded up to a power of two; a task due within
+     *                  {@code wheelSize} ticks is only looked at when it runs
+     */
+    public TimerWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration > 0 required but it was " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("0 < wheelSize <= 2^30 required but it was " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[Math.max(1, size)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::turn, "TimerWheelScheduler-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker(this);
+    }
+
+    @Override
+    public Disposable scheduleDirect(Runnable run, long delay, TimeUnit unit) {
+        return submit(new Task(this, RxJavaPlugins.onSchedule(run), null), delay, unit);
+    }
+
+    /**
+     * Stops the wheel thread. Tasks that have not run yet never will, and new ones are ignored.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+    }
+
+    Disposable submit(Task task, long delay, TimeUnit unit) {
+        if (shutdown) {
+            return Disposables.disposed();
+        }
+        if (delay <= 0) {
+            ready.offer(task);
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        } else {
+            task.deadline = System.nanoTime() + unit.toNanos(delay) - startNanos;
+            pending.offer(task);
+        }
+        return task;
+    }
+
+    /**
+     * The loop of the wheel thread: runs the ready tasks until the current tick is over,
+     * then the tasks due in it.
+     */
+    void turn() {
+        long tick = 0;
+        while (!shutdown) {
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            for (;;) {
+                Task task;
+                while ((task = ready.poll()) != null) {
+                    task.execute();
+                }
+                long wait = tickEnd - System.nanoTime();
+                if (wait <= 0 || shutdown) {
+                    break;
+                }
+                sleeping = true;
+                // Checked after announcing the sleep, so a task offered meanwhile either is seen here or unparks us
+                if (ready.isEmpty()) {
+                    LockSupport.parkNanos(this, wait);
+                }
+                sleeping = false;
+            }
+            removeCancelled();
+            addPending(tick);
+            expire(wheel[(int) tick & mask]);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Task task;
+        while ((task = cancelled.poll()) != null) {
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+            }
+        }
+    }
+
+    private void addPending(long tick) {
+        Task task;
+        while ((task = pending.poll()) != null) {
+            if (task.get() != WAITING) {
+                continue;
+            }
+            // The tick that ends after the deadline; one already over means the current one
+            long due = task.deadline / tickNanos;
+            task.rounds = (due - tick) / wheel.length;
+            wheel[(int) Math.max(due, tick) & mask].add(task);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Task task = bucket.head;
+        while (task != null) {
+            Task next = task.next;
+            if (task.rounds <= 0) {
+                bucket.remove(task);
+                task.execute();
+            } else {
+                task.rounds--;
+            }
+            task = next;
+        }
+    }
+
+    /**
+     * A doubly linked list of the tasks due in the ticks that map to one slot of the wheel.
+     * Only accessed from the wheel thread.
+     */
+    static final class Bucket {
+        Task head;
+        Task tail;
+
+        void add(Task task) {
+            task.bucket = this;
+            task.prev = tail;
+            if (tail == null) {
+                head = task;
+            } else {
+                tail.next = task;
+            }
+            tail = task;
+        }
+
+        void remove(Task task) {
+            if (task.prev == null) {
+                head = task.next;
+            } else {
+                task.prev.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.prev;
+            } else {
+                task.next.prev = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+    }
+
+    /**
+     * A scheduled action, whose state is the value it extends: it runs or is cancelled, only once.
+     */
+    static final class Task extends AtomicInteger implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final TimerWheelScheduler scheduler;
+        final Runnable action;
+        final WheelWorker worker;
+        // In nanoseconds since the start of the wheel
+        long deadline;
+
+        // Only accessed from the wheel thread
+        long rounds;
+        Bucket bucket;
+        Task prev;
+        Task next;
+
+        Task(TimerWheelScheduler scheduler, Runnable action, WheelWorker worker) {
+            this.scheduler = scheduler;
+            this.action = action;
+            this.worker = worker;
+        }
+
+        void execute() {
+            if (!compareAndSet(WAITING, RUNNING)) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                RxJavaPlugins.onError(e);
+            }
+            if (worker != null) {
+                worker.tasks.delete(this);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(WAITING, CANCELLED)) {
+                if (worker != null) {
+                    worker.tasks.delete(this);
+                }
+                scheduler.cancelled.offer(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() != WAITING;
+        }
+    }
+
+    static final class WheelWorker extends Worker {
+        final TimerWheelScheduler scheduler;
+        // The tasks that have not run yet, disposed with the worker
+        final CompositeDisposable tasks = new CompositeDisposable();
+
+        WheelWorker(TimerWheelScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public Disposable schedule(Runnable run, long delay, TimeUnit unit) {
+            if (tasks.isDisposed()) {
+                return Disposables.disposed();
+            }
+            Task task = new Task(scheduler, RxJavaPlugins.onSchedule(run), this);
+            if (!tasks.add(task)) {
+                return Disposables.disposed();
+            }
+            return scheduler.submit(task, delay, unit);
+        }
+
+        @Override
+        public void dispose() {
+            tasks.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return tasks.isDisposed();
+        }
+    }
+}
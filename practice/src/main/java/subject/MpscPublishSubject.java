@@ -0,0 +1,267 @@
+package subject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subjects.Subject;
+import util.MpscLinkedQueue;
+
+/**
+ * A {@link io.reactivex.subjects.PublishSubject} that may be pushed into from several threads at once,
+ * without {@code toSerialized()}.
+ * <p>
+ * Producers add values to a lock-free queue. Whichever producer finds nobody draining becomes the drainer
+ * and delivers everything queued so far, in queue order, so observers still see serial calls and
+ * nothing after the terminal event. Without contention, values skip the queue.
+ */
+public final class MpscPublishSubject<T> extends Subject<T> {
+    @SuppressWarnings("rawtypes")
+    private static final Inner[] EMPTY = new Inner[0];
+    @SuppressWarnings("rawtypes")
+    private static final Inner[] TERMINATED = new Inner[0];
+
+    private final MpscLinkedQueue<T> queue = new MpscLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean once = new AtomicBoolean();
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<Inner<T>[]> observers = new AtomicReference<>(EMPTY);
+
+    private volatile boolean done;
+    private Throwable error;
+
+    private MpscPublishSubject() {
+    }
+
+    public static <T> MpscPublishSubject<T> create() {
+        return new MpscPublishSubject<>();
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        Inner<T> inner = new Inner<>(observer, this);
+        observer.onSubscribe(inner);
+        if (add(inner)) {
+            if (inner.isDisposed()) {
+                remove(inner);
+            }
+        } else {
+            Throwable e = error;
+            if (e != null) {
+                observer.onError(e);
+            } else {
+                observer.onComplete();
+            }
+        }
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+        if (done) {
+            d.dispose();
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (t == null) {
+            onError(new NullPointerException("onNext called with null. Null values are generally not allowed in 2.x operators and sources."));
+            return;
+        }
+        if (done) {
+            return;
+        }
+        // Fast path: nobody is draining and nothing is queued, so emit directly
+        if (wip.get() == 0 && wip.compareAndSet(0, 1)) {
+            if (queue.isEmpty()) {
+                for (Inner<T> inner : observers.get()) {
+                    inner.onNext(t);
+                }
+                if (wip.decrementAndGet() == 0) {
+                    return;
+                }
+            } else {
+                queue.offer(t);
+            }
+            drainLoop();
+            return;
+        }
+        queue.offer(t);
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        if (e == null) {
+            e = new NullPointerException("onError called with null. Null values are generally not allowed in 2.x operators and sources.");
+        }
+        if (!once.compareAndSet(false, true)) {
+            RxJavaPlugins.onError(e);
+            return;
+        }
+        error = e;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (!once.compareAndSet(false, true)) {
+            return;
+        }
+        done = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        drainLoop();
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+        for (;;) {
+            for (;;) {
+                boolean d = done;
+                T v = queue.poll();
+                if (v == null) {
+                    if (d) {
+                        terminate();
+                        return;
+                    }
+                    break;
+                }
+                for (Inner<T> inner : observers.get()) {
+                    inner.onNext(v);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void terminate() {
+        Throwable e = error;
+        for (Inner<T> inner : observers.getAndSet(TERMINATED)) {
+            if (e != null) {
+                inner.onError(e);
+            } else {
+                inner.onComplete();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return observers.get().length != 0;
+    }
+
+    @Override
+    public boolean hasThrowable() {
+        return observers.get() == TERMINATED && error != null;
+    }
+
+    @Override
+    public boolean hasComplete() {
+        return observers.get() == TERMINATED && error == null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return observers.get() == TERMINATED ? error : null;
+    }
+
+    private boolean add(Inner<T> inner) {
+        for (;;) {
+            Inner<T>[] a = observers.get();
+            if (a == TERMINATED) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            Inner<T>[] b = new Inner[a.length + 1];
+            System.arraycopy(a, 0, b, 0, a.length);
+            b[a.length] = inner;
+            if (observers.compareAndSet(a, b)) {
+                return true;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(Inner<T> inner) {
+        for (;;) {
+            Inner<T>[] a = observers.get();
+            int j = -1;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == inner) {
+                    j = i;
+                    break;
+                }
+            }
+            if (j < 0) {
+                return;
+            }
+            Inner<T>[] b;
+            if (a.length == 1) {
+                b = EMPTY;
+            } else {
+                b = new Inner[a.length - 1];
+                System.arraycopy(a, 0, b, 0, j);
+                System.arraycopy(a, j + 1, b, j, a.length - j - 1);
+            }
+            if (observers.compareAndSet(a, b)) {
+                return;
+            }
+        }
+    }
+
+    static final class Inner<T> extends AtomicBoolean implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super T> downstream;
+        final MpscPublishSubject<T> parent;
+
+        Inner(Observer<? super T> downstream, MpscPublishSubject<T> parent) {
+            this.downstream = downstream;
+            this.parent = parent;
+        }
+
+        void onNext(T t) {
+            if (!get()) {
+                downstream.onNext(t);
+            }
+        }
+
+        void onError(Throwable e) {
+            if (!get()) {
+                downstream.onError(e);
+            }
+        }
+
+        void onComplete() {
+            if (!get()) {
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (compareAndSet(false, true)) {
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get();
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package subject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.Subject;
+import util.Codec;
+
+/**
+ * A {@link io.reactivex.subjects.ReplaySubject} whose history lives in a memory-mapped file instead of the heap.
+ * <p>
+ * Values are encoded with a {@link Codec} into a ring buffer of {@code capacity} bytes.
+ * When the buffer is full, or when a value is older than {@code maxAge}, the oldest values are dropped,
+ * so late subscribers replay at most that much history. Replay decodes straight from the mapped file.
+ * <p>
+ * Every record is laid out as {@code [int length][long timestamp][payload]}. A record never wraps
+ * around the end of the file: the space left at the end is skipped.
+ * <p>
+ * Replays read the file without locking, like a seqlock: the writer moves {@code head} past the records
+ * it drops, then a store fence keeps its writes over them after that move, so a replay that finds {@code head}
+ * past the record it just read, after a load fence, reads it again from {@code head}.
+ * {@code head} never moves past {@code tail}.
+ * <p>
+ * Like any subject, it expects onNext/onError/onComplete to be called serially.
+ * Call {@link #close()} to release the file.
+ */
+public final class OffHeapReplaySubject<T> extends Subject<T> {
+    private static final int HEADER = 4 + 8;
+    private static final int PADDING = -1;
+
+    @SuppressWarnings("rawtypes")
+    private static final Replay[] EMPTY = new Replay[0];
+    @SuppressWarnings("rawtypes")
+    private static final Replay[] TERMINATED = new Replay[0];
+
+    // Unsafe.loadFence and storeFence, as used by StampedLock; Java 8 has no public fences.
+    // Looked up reflectively, as compiling for Java 8 with a later JDK does not expose sun.misc
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle STORE_FENCE;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            LOAD_FENCE = MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "loadFence", MethodType.methodType(void.class))
+                    .bindTo(unsafe);
+            STORE_FENCE = MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "storeFence", MethodType.methodType(void.class))
+                    .bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Codec<T> codec;
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long maxAgeMillis;
+    private final Scheduler scheduler;
+    private final AtomicReference<Replay<T>[]> observers;
+
+    // Reused to encode each value before it is copied into the file
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    // Logical offsets, only ever increasing. The physical position is offset % capacity.
+    private volatile long head;
+    private volatile long tail;
+
+    private volatile boolean done;
+    private Throwable error;
+
+    private OffHeapReplaySubject(Codec<T> codec, File file, int capacity, long maxAgeMillis, Scheduler scheduler) {
+        if (capacity <= HEADER) {
+            throw new IllegalArgumentException("capacity > " + HEADER + " required but it was " + capacity);
+        }
+        this.codec = codec;
+        this.file = file;
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAgeMillis;
+        this.scheduler = scheduler;
+        this.observers = new AtomicReference<>(noObservers());
+        try {
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keeps as much history as fits in {@code capacity} bytes of a temporary file.
+     */
+    public static <T> OffHeapReplaySubject<T> create(Codec<T> codec, int capacity) {
+        return create(codec, tempFile(), capacity);
+    }
+
+    public static <T> OffHeapReplaySubject<T> create(Codec<T> codec, File file, int capacity) {
+        return new OffHeapReplaySubject<>(codec, file, capacity, Long.MAX_VALUE, Schedulers.computation());
+    }
+
+    /**
+     * Also drops values older than {@code maxAge}, as measured by the {@code scheduler}'s clock.
+     */
+    public static <T> OffHeapReplaySubject<T> createWithTime(Codec<T> codec, int capacity, long maxAge, TimeUnit unit, Scheduler scheduler) {
+        return new OffHeapReplaySubject<>(codec, tempFile(), capacity, unit.toMillis(maxAge), scheduler);
+    }
+
+    private static File tempFile() {
+        try {
+            File file = File.createTempFile("replay", ".seg");
+            file.deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        Replay<T> rd = new Replay<>(observer, this);
+        observer.onSubscribe(rd);
+        if (add(rd) && rd.cancelled) {
+            remove(rd);
+            return;
+        }
+        replay(rd);
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+        if (done) {
+            d.dispose();
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (t == null) {
+            onError(new NullPointerException("onNext called with null. Null values are generally not allowed in 2.x operators and sources."));
+            return;
+        }
+        if (done) {
+            return;
+        }
+        int length;
+        try {
+            length = encode(t);
+        } catch (Throwable e) {
+            Exceptions.throwIfFatal(e);
+            onError(e);
+            return;
+        }
+        append(length);
+        for (Replay<T> rd : observers.get()) {
+            replay(rd);
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        if (e == null) {
+            e = new NullPointerException("onError called with null. Null values are generally not allowed in 2.x operators and sources.");
+        }
+        if (done) {
+            RxJavaPlugins.onError(e);
+            return;
+        }
+        error = e;
+        terminate();
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        terminate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void terminate() {
+        done = true;
+        for (Replay<T> rd : observers.getAndSet(TERMINATED)) {
+            replay(rd);
+        }
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return observers.get().length != 0;
+    }
+
+    @Override
+    public boolean hasThrowable() {
+        return done && error != null;
+    }
+
+    @Override
+    public boolean hasComplete() {
+        return done && error == null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        return done ? error : null;
+    }
+
+    /**
+     * Bytes of history currently retained.
+     */
+    public long size() {
+        return tail - head;
+    }
+
+    /**
+     * Closes and deletes the file. Subscribers that are still replaying will see a corrupted history.
+     * <p>
+     * The mapping itself is not unmapped explicitly, as a replay still reading it on another thread would then
+     * crash the JVM: its memory is only released once the subject is garbage collected. Until then, on systems
+     * that do not delete mapped files, like Windows, the file stays on disk as well.
+     */
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Writing
+
+    private int encode(T value) {
+        int maxPayload = capacity - HEADER;
+        for (;;) {
+            scratch.clear();
+            try {
+                codec.encode(value, scratch);
+                scratch.flip();
+                return scratch.remaining();
+            } catch (BufferOverflowException e) {
+                if (scratch.capacity() >= maxPayload) {
+                    throw new IllegalArgumentException("Value does not fit in " + capacity + " bytes: " + value);
+                }
+                scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, maxPayload));
+            }
+        }
+    }
+
+    private void append(int length) {
+        long now = scheduler.now(TimeUnit.MILLISECONDS);
+        evictOlderThan(now - maxAgeMillis);
+
+        long t = tail;
+        int position = (int) (t % capacity);
+        if (position + HEADER + length > capacity) {
+            // Skip the end of the file and start over at 0
+            long start = t + (capacity - position);
+            ensureFree(start, HEADER + length);
+            reclaimed();
+            if (capacity - position >= 4) {
+                buffer.putInt(position, PADDING);
+            }
+            if (start + HEADER + length - head > capacity) {
+                // Everything was dropped, and the record still overwrites the skipped end:
+                // move both past it first, so no replay is left reading there
+                tail = start;
+                head = start;
+                reclaimed();
+            }
+            t = start;
+            position = 0;
+        } else {
+            ensureFree(t, HEADER + length);
+            reclaimed();
+        }
+        buffer.putLong(position + 4, now);
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + HEADER);
+        target.put(scratch);
+        buffer.putInt(position, length);
+        tail = t + HEADER + length;
+    }
+
+    /**
+     * Called once {@code head} has moved past the records about to be overwritten: the fence keeps the writes
+     * over them after that move, which a volatile store alone does not, so a replay reading them sees it.
+     */
+    private static void reclaimed() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Drops the oldest records until the file can hold a record of `size` bytes at `start`, or none are left
+    private void ensureFree(long start, int size) {
+        long t = tail;
+        long h = head;
+        while (h < t && start + size - h > capacity) {
+            h = next(h);
+            head = h;
+        }
+    }
+
+    private void evictOlderThan(long limit) {
+        long h = head;
+        long t = tail;
+        while (h != t) {
+            int position = (int) (h % capacity);
+            if (!isPadding(position) && buffer.getLong(position + 4) >= limit) {
+                break;
+            }
+            h = next(h);
+            head = h;
+        }
+    }
+
+    private boolean isPadding(int position) {
+        return capacity - position < HEADER || buffer.getInt(position) == PADDING;
+    }
+
+    private long next(long offset) {
+        int position = (int) (offset % capacity);
+        if (isPadding(position)) {
+            return offset + (capacity - position);
+        }
+        return offset + HEADER + buffer.getInt(position);
+    }
+
+    // Replaying
+
+    private void replay(Replay<T> rd) {
+        if (rd.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        Observer<? super T> downstream = rd.downstream;
+        ByteBuffer view = buffer.duplicate();
+        for (;;) {
+            long index = rd.index;
+            long oldest = scheduler.now(TimeUnit.MILLISECONDS) - maxAgeMillis;
+            for (;;) {
+                if (rd.cancelled) {
+                    return;
+                }
+                boolean d = done;
+                long t = tail;
+                long h = head;
+                if (index < h) {
+                    // Evicted before this subscriber got to it
+                    index = h;
+                }
+                if (index >= t) {
+                    if (d) {
+                        rd.cancelled = true;
+                        Throwable e = error;
+                        if (e != null) {
+                            downstream.onError(e);
+                        } else {
+                            downstream.onComplete();
+                        }
+                        return;
+                    }
+                    break;
+                }
+                int position = (int) (index % capacity);
+                if (isPadding(position)) {
+                    if (!overwritten(index)) {
+                        index += capacity - position;
+                    }
+                    continue;
+                }
+                int length = view.getInt(position);
+                long timestamp = view.getLong(position + 4);
+                T value = null;
+                Throwable failure = null;
+                if (length >= 0 && position + HEADER + length <= capacity) {
+                    view.limit(position + HEADER + length).position(position + HEADER);
+                    try {
+                        value = codec.decode(view);
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                    view.clear();
+                }
+                if (overwritten(index)) {
+                    // The writer dropped the record while we were reading it
+                    continue;
+                }
+                if (failure == null && value == null) {
+                    failure = new IllegalStateException("Corrupted record at " + index);
+                }
+                if (failure != null) {
+                    Exceptions.throwIfFatal(failure);
+                    rd.cancelled = true;
+                    remove(rd);
+                    downstream.onError(failure);
+                    return;
+                }
+                index += HEADER + length;
+                if (timestamp >= oldest) {
+                    downstream.onNext(value);
+                }
+            }
+            rd.index = index;
+            missed = rd.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Validates what was read of the record at {@code index}: the fence keeps those reads before that of {@code head}.
+     */
+    private boolean overwritten(long index) {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        return head > index;
+    }
+
+    // Subscribers
+
+    @SuppressWarnings("unchecked")
+    private static <T> Replay<T>[] noObservers() {
+        return EMPTY;
+    }
+
+    private boolean add(Replay<T> rd) {
+        for (;;) {
+            Replay<T>[] a = observers.get();
+            if (a == TERMINATED) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            Replay<T>[] b = new Replay[a.length + 1];
+            System.arraycopy(a, 0, b, 0, a.length);
+            b[a.length] = rd;
+            if (observers.compareAndSet(a, b)) {
+                return true;
+            }
+        }
+    }
+
+    private void remove(Replay<T> rd) {
+        for (;;) {
+            Replay<T>[] a = observers.get();
+            if (a == TERMINATED || a == EMPTY) {
+                return;
+            }
+            int j = -1;
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] == rd) {
+                    j = i;
+                    break;
+                }
+            }
+            if (j < 0) {
+                return;
+            }
+            Replay<T>[] b;
+            if (a.length == 1) {
+                b = noObservers();
+            } else {
+                @SuppressWarnings("unchecked")
+                Replay<T>[] c = new Replay[a.length - 1];
+                System.arraycopy(a, 0, c, 0, j);
+                System.arraycopy(a, j + 1, c, j, a.length - j - 1);
+                b = c;
+            }
+            if (observers.compareAndSet(a, b)) {
+                return;
+            }
+        }
+    }
+
+    static final class Replay<T> extends AtomicInteger implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super T> downstream;
+        final OffHeapReplaySubject<T> parent;
+        // Logical offset of the next record to emit; only touched inside the drain loop
+        long index;
+        volatile boolean cancelled;
+
+        Replay(Observer<? super T> downstream, OffHeapReplaySubject<T> parent) {
+            this.downstream = downstream;
+            this.parent = parent;
+        }
+
+        @Override
+        public void dispose() {
+            if (!cancelled) {
+                cancelled = true;
+                parent.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return cancelled;
+        }
+    }
+}
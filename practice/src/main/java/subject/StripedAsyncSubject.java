@@ -0,0 +1,187 @@
+package subject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subjects.Subject;
+
+/**
+ * An {@link io.reactivex.subjects.AsyncSubject} whose subscribers are kept in a {@link SubscriberRegistry},
+ * so subscribing and disposing cost the same with ten or ten thousand subscribers.
+ * <p>
+ * Subscribers are registered before the result is checked, and the terminal traversal sets the
+ * result before visiting them, so every subscriber gets the result exactly once.
+ */
+public final class StripedAsyncSubject<T> extends Subject<T> {
+    private final SubscriberRegistry<Entry<T>> registry = new SubscriberRegistry<>();
+
+    private T value;
+    private volatile Result<T> result;
+
+    private StripedAsyncSubject() {
+    }
+
+    public static <T> StripedAsyncSubject<T> create() {
+        return new StripedAsyncSubject<>();
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        Entry<T> entry = new Entry<>(observer, registry);
+        observer.onSubscribe(entry);
+        Result<T> r = result;
+        if (r != null) {
+            entry.complete(r);
+            return;
+        }
+        entry.node = registry.add(entry);
+        if (entry.isDisposed()) {
+            registry.remove(entry.node);
+            return;
+        }
+        r = result;
+        if (r != null) {
+            entry.complete(r);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+        if (result != null) {
+            d.dispose();
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (t == null) {
+            onError(new NullPointerException("onNext called with null. Null values are generally not allowed in 2.x operators and sources."));
+            return;
+        }
+        if (result != null) {
+            return;
+        }
+        value = t;
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        if (e == null) {
+            e = new NullPointerException("onError called with null. Null values are generally not allowed in 2.x operators and sources.");
+        }
+        if (result != null) {
+            RxJavaPlugins.onError(e);
+            return;
+        }
+        value = null;
+        terminate(new Result<>(null, e));
+    }
+
+    @Override
+    public void onComplete() {
+        if (result != null) {
+            return;
+        }
+        terminate(new Result<>(value, null));
+    }
+
+    private void terminate(Result<T> r) {
+        result = r;
+        registry.forEach(entry -> entry.complete(r));
+    }
+
+    public boolean hasValue() {
+        Result<T> r = result;
+        return r != null && r.value != null;
+    }
+
+    public T getValue() {
+        Result<T> r = result;
+        return r != null ? r.value : null;
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return !registry.isEmpty();
+    }
+
+    @Override
+    public boolean hasThrowable() {
+        Result<T> r = result;
+        return r != null && r.error != null;
+    }
+
+    @Override
+    public boolean hasComplete() {
+        Result<T> r = result;
+        return r != null && r.error == null;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        Result<T> r = result;
+        return r != null ? r.error : null;
+    }
+
+    static final class Result<T> {
+        final T value;
+        final Throwable error;
+
+        Result(T value, Throwable error) {
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    static final class Entry<T> extends AtomicBoolean implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super T> downstream;
+        final SubscriberRegistry<Entry<T>> registry;
+        volatile SubscriberRegistry.Node<Entry<T>> node;
+        volatile boolean disposed;
+
+        Entry(Observer<? super T> downstream, SubscriberRegistry<Entry<T>> registry) {
+            this.downstream = downstream;
+            this.registry = registry;
+        }
+
+        void complete(Result<T> r) {
+            if (disposed || !compareAndSet(false, true)) {
+                return;
+            }
+            SubscriberRegistry.Node<Entry<T>> n = node;
+            if (n != null) {
+                registry.remove(n);
+            }
+            if (r.error != null) {
+                downstream.onError(r.error);
+                return;
+            }
+            if (r.value != null) {
+                downstream.onNext(r.value);
+            }
+            if (!disposed) {
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                SubscriberRegistry.Node<Entry<T>> n = node;
+                if (n != null) {
+                    registry.remove(n);
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
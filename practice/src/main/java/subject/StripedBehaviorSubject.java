@@ -0,0 +1,285 @@
+package subject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subjects.Subject;
+import util.MpscLinkedQueue;
+
+/**
+ * A {@link io.reactivex.subjects.BehaviorSubject} whose subscribers are kept in a {@link SubscriberRegistry},
+ * so subscribing and disposing cost the same with ten or ten thousand subscribers.
+ * <p>
+ * Every value is wrapped once in a versioned {@link Signal} that all subscribers share.
+ * A new subscriber is registered first and then handed the current signal, so it may race with
+ * an {@code onNext}: each subscriber drops any signal older than the last one it emitted,
+ * which keeps the latest-value-then-updates order of BehaviorSubject. Once the initial value is out,
+ * the emitter delivers to the subscriber directly.
+ */
+public final class StripedBehaviorSubject<T> extends Subject<T> {
+    private final SubscriberRegistry<Entry<T>> registry = new SubscriberRegistry<>();
+
+    private volatile Signal current;
+    private long version;
+
+    private StripedBehaviorSubject(Signal initial) {
+        this.current = initial;
+    }
+
+    public static <T> StripedBehaviorSubject<T> create() {
+        return new StripedBehaviorSubject<>(null);
+    }
+
+    public static <T> StripedBehaviorSubject<T> createDefault(T defaultValue) {
+        if (defaultValue == null) {
+            throw new NullPointerException("defaultValue is null");
+        }
+        StripedBehaviorSubject<T> subject = new StripedBehaviorSubject<>(new Signal(defaultValue, 1));
+        subject.version = 1;
+        return subject;
+    }
+
+    @Override
+    protected void subscribeActual(Observer<? super T> observer) {
+        Entry<T> entry = new Entry<>(observer, registry);
+        observer.onSubscribe(entry);
+        Signal signal = current;
+        if (signal != null && signal.isTerminal()) {
+            entry.offer(signal);
+            return;
+        }
+        entry.node = registry.add(entry);
+        if (entry.isDisposed()) {
+            registry.remove(entry.node);
+            return;
+        }
+        // Read after registering: if the emitter already passed our stripe, this is at least as recent
+        signal = current;
+        if (signal != null) {
+            entry.offer(signal);
+        }
+        entry.initialDone = true;
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+        Signal signal = current;
+        if (signal != null && signal.isTerminal()) {
+            d.dispose();
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (t == null) {
+            onError(new NullPointerException("onNext called with null. Null values are generally not allowed in 2.x operators and sources."));
+            return;
+        }
+        emit(t);
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        if (e == null) {
+            e = new NullPointerException("onError called with null. Null values are generally not allowed in 2.x operators and sources.");
+        }
+        Signal signal = current;
+        if (signal != null && signal.isTerminal()) {
+            RxJavaPlugins.onError(e);
+            return;
+        }
+        emit(new Terminal(e));
+    }
+
+    @Override
+    public void onComplete() {
+        emit(Terminal.COMPLETE);
+    }
+
+    private void emit(Object value) {
+        Signal previous = current;
+        if (previous != null && previous.isTerminal()) {
+            return;
+        }
+        Signal signal = new Signal(value, ++version);
+        current = signal;
+        registry.forEach(entry -> entry.offerFromEmitter(signal));
+    }
+
+    public boolean hasValue() {
+        Signal signal = current;
+        return signal != null && !signal.isTerminal();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getValue() {
+        Signal signal = current;
+        return signal != null && !signal.isTerminal() ? (T) signal.value : null;
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return !registry.isEmpty();
+    }
+
+    @Override
+    public boolean hasThrowable() {
+        return getThrowable() != null;
+    }
+
+    @Override
+    public boolean hasComplete() {
+        Signal signal = current;
+        return signal != null && signal.value == Terminal.COMPLETE;
+    }
+
+    @Override
+    public Throwable getThrowable() {
+        Signal signal = current;
+        return signal != null && signal.isTerminal() ? ((Terminal) signal.value).error : null;
+    }
+
+    static final class Terminal {
+        static final Terminal COMPLETE = new Terminal(null);
+
+        final Throwable error;
+
+        Terminal(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * A value or a {@link Terminal}, numbered in emission order.
+     */
+    static final class Signal {
+        final Object value;
+        final long version;
+
+        Signal(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        boolean isTerminal() {
+            return value instanceof Terminal;
+        }
+    }
+
+    static final class Entry<T> extends AtomicInteger implements Disposable {
+        private static final long serialVersionUID = 1L;
+
+        final Observer<? super T> downstream;
+        final SubscriberRegistry<Entry<T>> registry;
+        // Only allocated if the initial value races with an onNext
+        MpscLinkedQueue<Signal> queue;
+        volatile SubscriberRegistry.Node<Entry<T>> node;
+        volatile boolean disposed;
+        // Set once the subscribing thread will not call offer any more
+        volatile boolean initialDone;
+        // Only accessed by the emitting thread: once true, signals are emitted without the queue-drain
+        boolean fastPath;
+        long emitted;
+        boolean done;
+
+        Entry(Observer<? super T> downstream, SubscriberRegistry<Entry<T>> registry) {
+            this.downstream = downstream;
+            this.registry = registry;
+        }
+
+        void offerFromEmitter(Signal signal) {
+            if (fastPath) {
+                emit(signal);
+                return;
+            }
+            // The subscribing thread is gone, and since the emitter is not inside offer, nothing is queued
+            if (initialDone) {
+                fastPath = true;
+                emit(signal);
+                return;
+            }
+            offer(signal);
+        }
+
+        void offer(Signal signal) {
+            if (get() == 0 && compareAndSet(0, 1)) {
+                emit(signal);
+                if (decrementAndGet() == 0) {
+                    return;
+                }
+            } else {
+                synchronized (this) {
+                    if (queue == null) {
+                        queue = new MpscLinkedQueue<>();
+                    }
+                }
+                queue.offer(signal);
+                if (getAndIncrement() != 0) {
+                    return;
+                }
+            }
+            drain();
+        }
+
+        private void drain() {
+            int missed = 1;
+            for (;;) {
+                MpscLinkedQueue<Signal> q;
+                synchronized (this) {
+                    q = queue;
+                }
+                if (q != null) {
+                    Signal signal;
+                    while ((signal = q.poll()) != null) {
+                        emit(signal);
+                    }
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void emit(Signal signal) {
+            if (done || disposed || signal.version <= emitted) {
+                return;
+            }
+            emitted = signal.version;
+            if (signal.isTerminal()) {
+                done = true;
+                SubscriberRegistry.Node<Entry<T>> n = node;
+                if (n != null) {
+                    registry.remove(n);
+                }
+                Throwable e = ((Terminal) signal.value).error;
+                if (e != null) {
+                    downstream.onError(e);
+                } else {
+                    downstream.onComplete();
+                }
+            } else {
+                downstream.onNext((T) signal.value);
+            }
+        }
+
+        @Override
+        public void dispose() {
+            if (!disposed) {
+                disposed = true;
+                SubscriberRegistry.Node<Entry<T>> n = node;
+                if (n != null) {
+                    registry.remove(n);
+                }
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
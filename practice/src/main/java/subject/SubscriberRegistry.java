@@ -0,0 +1,150 @@
+package subject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free set of subscribers where adding and removing is O(1), no matter how many there are.
+ * <p>
+ * The built-in subjects keep an array of subscribers and copy it on every subscribe and dispose.
+ * Here subscribers are pushed onto one of several linked lists (stripes), picked by thread,
+ * so that concurrent subscribes rarely compete for the same head.
+ * Removing only marks the node; marked nodes are unlinked by whichever traversal gets to them first,
+ * or once they make up half of their stripe, which keeps the cost of unlinking amortized O(1).
+ */
+public final class SubscriberRegistry<E> {
+    private static final int PURGE_THRESHOLD = 64;
+
+    private final Stripe<E>[] stripes;
+    private final int mask;
+    private final LongAdder size = new LongAdder();
+
+    public SubscriberRegistry() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SubscriberRegistry(int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+        this.mask = n - 1;
+    }
+
+    /**
+     * @return the handle to pass to {@link #remove}
+     */
+    public Node<E> add(E value) {
+        Stripe<E> stripe = stripes[(int) Thread.currentThread().getId() & mask];
+        Node<E> node = new Node<>(value, stripe);
+        for (;;) {
+            Node<E> head = stripe.get();
+            node.next = head;
+            if (stripe.compareAndSet(head, node)) {
+                break;
+            }
+        }
+        stripe.linked.incrementAndGet();
+        size.increment();
+        return node;
+    }
+
+    public void remove(Node<E> node) {
+        if (node.compareAndSet(false, true)) {
+            size.decrement();
+            Stripe<E> stripe = node.stripe;
+            // Purging costs the length of the stripe, so wait until at least half of it is garbage
+            int removed = stripe.removed.incrementAndGet();
+            if (removed > PURGE_THRESHOLD && removed * 2 > stripe.linked.get()) {
+                traverse(stripe, null);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size.sum() == 0;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Calls {@code action} for every subscriber that was added before this call started
+     * and not removed before its stripe was reached.
+     */
+    public void forEach(Consumer<? super E> action) {
+        for (Stripe<E> stripe : stripes) {
+            traverse(stripe, action);
+        }
+    }
+
+    private void traverse(Stripe<E> stripe, Consumer<? super E> action) {
+        // Only one traversal per stripe unlinks, so interior unlinks never race with each other
+        boolean purge = stripe.removed.get() > 0 && stripe.purging.compareAndSet(false, true);
+        if (!purge && action == null) {
+            return;
+        }
+        int purged = 0;
+        Node<E> previous = null;
+        Node<E> node = stripe.get();
+        while (node != null) {
+            Node<E> next = node.next;
+            if (node.get()) {
+                if (purge) {
+                    if (previous != null) {
+                        previous.next = next;
+                        purged++;
+                        node = next;
+                        continue;
+                    }
+                    if (stripe.compareAndSet(node, next)) {
+                        purged++;
+                        node = next;
+                        continue;
+                    }
+                    // A new head was pushed in the meantime; leave this one for the next purge
+                }
+            } else if (action != null) {
+                action.accept(node.value);
+            }
+            previous = node;
+            node = next;
+        }
+        if (purge) {
+            stripe.removed.addAndGet(-purged);
+            stripe.linked.addAndGet(-purged);
+            stripe.purging.set(false);
+        }
+    }
+
+    /**
+     * A registered subscriber. The boolean value is true once removed.
+     */
+    public static final class Node<E> extends AtomicBoolean {
+        private static final long serialVersionUID = 1L;
+
+        final E value;
+        final Stripe<E> stripe;
+        volatile Node<E> next;
+
+        Node(E value, Stripe<E> stripe) {
+            this.value = value;
+            this.stripe = stripe;
+        }
+    }
+
+    static final class Stripe<E> extends AtomicReference<Node<E>> {
+        private static final long serialVersionUID = 1L;
+
+        // Nodes in the list, including the removed ones that are not unlinked yet
+        final AtomicInteger linked = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final AtomicBoolean purging = new AtomicBoolean();
+    }
+}
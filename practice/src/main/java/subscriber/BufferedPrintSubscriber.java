@@ -0,0 +1,235 @@
+package subscriber;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.MaybeObserver;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Prints the same lines as {@link PrintSubscriber}, but appends them to a reusable buffer
+ * and writes them to a channel in batches.
+ * The buffer is flushed when it reaches {@code flushSize} chars, {@code flushInterval} after the first line
+ * that went into it, and on every terminal event. The interval is kept by a timer on {@code scheduler},
+ * armed by the first line after a flush, so the last lines of a burst are written even if the stream stalls,
+ * and an idle stream keeps no timer.
+ * <p>
+ * Like any other observer, it expects the Rx contract to be respected: calls must not overlap.
+ * They only overlap with the timer, which takes the same lock. If the channel fails, the upstream is
+ * disposed, the rest of the output is dropped and the {@link IOException} goes to {@link RxJavaPlugins#onError}.
+ */
+public class BufferedPrintSubscriber implements Observer, SingleObserver, MaybeObserver {
+    public static final int DEFAULT_FLUSH_SIZE = 8192;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final String name;
+    private final WritableByteChannel channel;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final StringBuilder buffer;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+    private final Scheduler.Worker worker;
+    private final Runnable timer = this::onTimer;
+    private volatile Disposable upstream;
+
+    // Guarded by this
+    private long firstLineAt;
+    private boolean armed;
+    private boolean failed;
+    private long flushCount;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+    private long totalFlushNanos;
+
+    public BufferedPrintSubscriber(String name) {
+        this(name,
+             Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+             DEFAULT_FLUSH_SIZE,
+             DEFAULT_FLUSH_INTERVAL_MILLIS,
+             TimeUnit.MILLISECONDS);
+    }
+
+    public BufferedPrintSubscriber(String name, WritableByteChannel channel, int flushSize, long flushInterval, TimeUnit unit) {
+        this(name, channel, flushSize, flushInterval, unit, Schedulers.computation());
+    }
+
+    public BufferedPrintSubscriber(String name, WritableByteChannel channel, int flushSize, long flushInterval, TimeUnit unit,
+                                   Scheduler scheduler) {
+        if (flushSize <= 0) {
+            throw new IllegalArgumentException("flushSize > 0 required but it was " + flushSize);
+        }
+        this.name = name;
+        this.channel = channel;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+        this.buffer = new StringBuilder(flushSize + 64);
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocateDirect((int) Math.ceil(flushSize * encoder.maxBytesPerChar()));
+        this.worker = scheduler.createWorker();
+    }
+
+    @Override
+    public void onSubscribe(final Disposable d) {
+        upstream = d;
+    }
+
+    @Override
+    public void onSuccess(final Object o) {
+        terminate(": Success: ", o);
+    }
+
+    @Override
+    public void onNext(final Object o) {
+        boolean arm = false;
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            boolean empty = buffer.length() == 0;
+            buffer.append(name).append(": ").append(o).append(LINE_SEPARATOR);
+            if (buffer.length() >= flushSize) {
+                flush();
+            } else if (empty) {
+                firstLineAt = worker.now(TimeUnit.NANOSECONDS);
+                arm = !armed;
+                armed = true;
+            }
+        }
+        if (arm) {
+            worker.schedule(timer, flushIntervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void onError(final Throwable e) {
+        terminate(": Error: ", e);
+    }
+
+    @Override
+    public void onComplete() {
+        terminate(": Completed", "");
+    }
+
+    private void terminate(String event, Object o) {
+        synchronized (this) {
+            if (!failed) {
+                buffer.append(name).append(event).append(o).append(LINE_SEPARATOR);
+                flush();
+            }
+        }
+        worker.dispose();
+    }
+
+    /**
+     * Flushes the buffer if its first line is due, or waits for it if the buffer is newer than the timer.
+     */
+    private void onTimer() {
+        long wait;
+        synchronized (this) {
+            if (buffer.length() == 0 || failed) {
+                armed = false;
+                return;
+            }
+            wait = firstLineAt + flushIntervalNanos - worker.now(TimeUnit.NANOSECONDS);
+            if (wait <= 0) {
+                armed = false;
+                flush();
+                return;
+            }
+        }
+        worker.schedule(timer, wait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes out everything buffered so far and records how long it took. Does nothing if the buffer is empty.
+     */
+    public synchronized void flush() {
+        if (buffer.length() == 0 || failed) {
+            return;
+        }
+        long start = System.nanoTime();
+        CharBuffer in = CharBuffer.wrap(buffer);
+        encoder.reset();
+        try {
+            CoderResult result;
+            do {
+                result = encoder.encode(in, bytes, true);
+                drain();
+            } while (result.isOverflow());
+            do {
+                result = encoder.flush(bytes);
+                drain();
+            } while (result.isOverflow());
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        buffer.setLength(0);
+        long end = System.nanoTime();
+        lastFlushNanos = end - start;
+        maxFlushNanos = Math.max(maxFlushNanos, lastFlushNanos);
+        totalFlushNanos += lastFlushNanos;
+        flushCount++;
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } finally {
+            bytes.clear();
+        }
+    }
+
+    // Guarded by this
+    private void fail(IOException e) {
+        failed = true;
+        buffer.setLength(0);
+        worker.dispose();
+        Disposable d = upstream;
+        if (d != null) {
+            d.dispose();
+        }
+        RxJavaPlugins.onError(e);
+    }
+
+    // Flush latency metrics, in nanoseconds
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public synchronized long getMaxFlushNanos() {
+        return maxFlushNanos;
+    }
+
+    public synchronized long getAverageFlushNanos() {
+        return flushCount == 0 ? 0 : totalFlushNanos / flushCount;
+    }
+}
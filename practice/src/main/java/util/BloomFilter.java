@@ -0,0 +1,84 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A Bloom filter over {@code long} keys: a key that was added is always reported as present,
+ * a key that was not is reported as present with probability close to the configured false-positive rate,
+ * as long as no more than {@code expectedKeys} keys are added. Not thread-safe.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitMask;
+    private final int hashes;
+    private final int expectedKeys;
+    private int added;
+
+    public BloomFilter(int expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys > 0 required but it was " + expectedKeys);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1) but it was " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // A power of two, so that probes are masked rather than divided
+        long bitCount = Long.highestOneBit(Math.max(m - 1, 63)) << 1;
+        if (bitCount > 1L << 36) {
+            throw new IllegalArgumentException("Too many bits for expectedKeys " + expectedKeys + " and falsePositiveRate " + falsePositiveRate);
+        }
+        this.bits = new long[(int) (bitCount >>> 6)];
+        this.bitMask = bitCount - 1;
+        // Rounding up the bits already lowers the rate, so do not also pay for the extra hashes
+        int optimalHashes = (int) Math.round((double) bitCount / expectedKeys * ln2);
+        this.hashes = Math.max(1, Math.min(optimalHashes, (int) Math.ceil(-Math.log(falsePositiveRate) / ln2)));
+        this.expectedKeys = expectedKeys;
+    }
+
+    /**
+     * @return false if the key was definitely not present before
+     */
+    public boolean put(long key) {
+        long h1 = LongObjectMap.mix(key);
+        long h2 = LongObjectMap.mix(h1) | 1;
+        boolean present = true;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bits[word] & mask) == 0) {
+                present = false;
+                bits[word] |= mask;
+            }
+        }
+        if (!present) {
+            added++;
+        }
+        return present;
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = LongObjectMap.mix(key);
+        long h2 = LongObjectMap.mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True once the filter holds as many keys as it was sized for.
+     */
+    public boolean isFull() {
+        return added >= expectedKeys;
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0);
+        added = 0;
+    }
+}
@@ -0,0 +1,59 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns values into bytes and back, for operators that keep their state outside the heap.
+ * {@link #encode} writes at the buffer's position and may throw
+ * {@link java.nio.BufferOverflowException} if the value does not fit, in which case it is
+ * retried with a bigger buffer. {@link #decode} reads the bytes between position and limit.
+ */
+public interface Codec<T> {
+    void encode(T value, ByteBuffer out);
+
+    T decode(ByteBuffer in);
+
+    Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public void encode(Integer value, ByteBuffer out) {
+            out.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer in) {
+            return in.getInt();
+        }
+    };
+
+    Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public void encode(Long value, ByteBuffer out) {
+            out.putLong(value);
+        }
+
+        @Override
+        public Long decode(ByteBuffer in) {
+            return in.getLong();
+        }
+    };
+
+    Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void encode(String value, ByteBuffer out) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer in) {
+            if (in.hasArray()) {
+                String value = new String(in.array(), in.arrayOffset() + in.position(), in.remaining(), StandardCharsets.UTF_8);
+                in.position(in.limit());
+                return value;
+            }
+            byte[] bytes = new byte[in.remaining()];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+}
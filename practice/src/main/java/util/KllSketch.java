@@ -0,0 +1,279 @@
+package util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A KLL quantile sketch over doubles: estimates the value at any rank of a stream of any length
+ * in memory that only depends on {@code k}. Ranks are accurate to about {@code 1.7 / k * count}
+ * with high probability, so {@code k = 200} answers a median with about 1.65% rank error.
+ * Sketches of parts of a stream can be {@link #merge merged}. Not thread-safe.
+ * <p>
+ * Values are kept in levels of compactors; a value at level {@code h} stands for {@code 2^h} values of the stream.
+ * When a level is full it is sorted and every other value, starting at random, is promoted to the next level.
+ * Lower levels get geometrically smaller capacities, which is what keeps the total size at about {@code 3k}.
+ */
+public class KllSketch {
+    public static final int DEFAULT_K = 200;
+    // Capacity ratio between consecutive levels
+    private static final double DECAY = 2.0 / 3;
+    // Below this, compactions happen too often to pay for themselves
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private final SplittableRandom random;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    // Recomputed when a level is added, since the capacities shrink with the distance from the top
+    private int[] capacities;
+    private int totalCapacity;
+    private int retained;
+    private int height = 1;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    // Values sorted with their cumulative weights, until the next update
+    private double[] sortedValues;
+    private long[] sortedWeights;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        this(k, new SplittableRandom());
+    }
+
+    KllSketch(int k, SplittableRandom random) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k >= " + MIN_CAPACITY + " required but it was " + k);
+        }
+        this.k = k;
+        this.random = random;
+        levels[0] = new double[k];
+        capacities = new int[] {k};
+        totalCapacity = k;
+    }
+
+    /**
+     * Adds a value; NaN is ignored.
+     */
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count++ == 0) {
+            min = value;
+            max = value;
+        } else if (value < min) {
+            min = value;
+        } else if (value > max) {
+            max = value;
+        }
+        sortedValues = null;
+        append(0, value);
+        if (retained >= totalCapacity) {
+            compact();
+        }
+    }
+
+    /**
+     * Adds the values of another sketch with the same {@code k}, which is left unchanged.
+     */
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge a sketch with k " + other.k + " into one with k " + k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        sortedValues = null;
+        for (int h = 0; h < other.height; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compact();
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the smallest value added, or NaN if none was
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * @return the largest value added, or NaN if none was
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * @param fraction between 0 and 1
+     * @return an estimate of the value that {@code fraction} of the values are less than or equal to,
+     * or NaN if nothing was added
+     */
+    public double quantile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("fraction must be in [0, 1] but it was " + fraction);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0) {
+            return min;
+        }
+        if (fraction == 1) {
+            return max;
+        }
+        sort();
+        long total = sortedWeights[sortedWeights.length - 1];
+        long rank = (long) Math.ceil(fraction * total);
+        int i = Arrays.binarySearch(sortedWeights, rank);
+        return sortedValues[i >= 0 ? i : -i - 1];
+    }
+
+    public double[] quantiles(double... fractions) {
+        double[] result = new double[fractions.length];
+        for (int i = 0; i < fractions.length; i++) {
+            result[i] = quantile(fractions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return an estimate of the fraction of values less than or equal to {@code value}
+     */
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        long total = sortedWeights[sortedWeights.length - 1];
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? 0 : (double) sortedWeights[lo - 1] / total;
+    }
+
+    /**
+     * @return the number of values held, which is what the memory use is proportional to
+     */
+    public int retained() {
+        return retained;
+    }
+
+    private int capacity(int level) {
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, height - 1 - level)));
+    }
+
+    private void append(int level, double value) {
+        if (level == height) {
+            levels = Arrays.copyOf(levels, height + 1);
+            sizes = Arrays.copyOf(sizes, height + 1);
+            levels[height] = new double[MIN_CAPACITY];
+            height++;
+            capacities = new int[height];
+            totalCapacity = 0;
+            for (int h = 0; h < height; h++) {
+                capacities[h] = capacity(h);
+                totalCapacity += capacities[h];
+            }
+        }
+        double[] items = levels[level];
+        if (sizes[level] == items.length) {
+            levels[level] = items = Arrays.copyOf(items, items.length * 2);
+        }
+        items[sizes[level]++] = value;
+        retained++;
+    }
+
+    /**
+     * Compacts the lowest full level until the sketch as a whole is below its capacity.
+     * Levels may exceed their own capacity while others have room, so that the small capacities
+     * of the lowest levels do not make them compact every few values.
+     */
+    private void compact() {
+        while (retained >= totalCapacity) {
+            int h = 0;
+            while (sizes[h] < capacities[h]) {
+                h++;
+            }
+            compact(h);
+        }
+    }
+
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        // An odd value out stays, so that the promoted pairs cover an even number of values
+        int kept = size & 1;
+        int offset = kept + random.nextInt(2);
+        for (int i = offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        // append may have replaced levels, but not the array of this level
+        retained -= size - kept;
+        sizes[level] = kept;
+    }
+
+    private void sort() {
+        if (sortedValues != null) {
+            return;
+        }
+        // Merge the sorted levels one at a time, from the top, which is the smallest
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int h = height - 1; h >= 0; h--) {
+            double[] level = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(level);
+            long weight = 1L << h;
+            double[] mergedValues = new double[values.length + level.length];
+            long[] mergedWeights = new long[mergedValues.length];
+            int a = 0;
+            int b = 0;
+            for (int i = 0; i < mergedValues.length; i++) {
+                if (b == level.length || a < values.length && values[a] <= level[b]) {
+                    mergedValues[i] = values[a];
+                    mergedWeights[i] = weights[a++];
+                } else {
+                    mergedValues[i] = level[b++];
+                    mergedWeights[i] = weight;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        sortedValues = values;
+        sortedWeights = weights;
+    }
+}
@@ -0,0 +1,138 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash set of primitive {@code long}s. Not thread-safe.
+ * 0 marks an empty slot, so the key 0 itself is tracked by a separate flag.
+ */
+public class LongHashSet {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = LongObjectMap.tableSizeFor((int) Math.min(1 << 30, (long) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR)));
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == 0) {
+                return false;
+            }
+            if (k == key) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the key was not in the set
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = index(key);
+        for (long k; (k = keys[i]) != 0; i = (i + 1) & mask) {
+            if (k == key) {
+                return false;
+            }
+        }
+        keys[i] = key;
+        if (++size > (mask + 1) * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key was in the set
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == 0) {
+                return false;
+            }
+            if (k == key) {
+                size--;
+                shiftBack(i);
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    // Backward-shift deletion, as in LongObjectMap
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keys[i];
+            if (k == 0) {
+                break;
+            }
+            int home = index(k);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (long k : oldKeys) {
+            if (k != 0) {
+                int i = index(k);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+            }
+        }
+    }
+
+    private int index(long key) {
+        return (int) LongObjectMap.mix(key) & mask;
+    }
+}
@@ -0,0 +1,63 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded multi-producer single-consumer queue.
+ * {@link #offer} may be called from any number of threads and never blocks or retries:
+ * producers swap themselves in as the last node with a single atomic exchange.
+ * {@link #poll} must only be called from one thread at a time.
+ */
+public final class MpscLinkedQueue<T> {
+    private final AtomicReference<Node<T>> producerNode;
+    private Node<T> consumerNode;
+
+    public MpscLinkedQueue() {
+        Node<T> stub = new Node<>(null);
+        producerNode = new AtomicReference<>(stub);
+        consumerNode = stub;
+    }
+
+    public void offer(T value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        Node<T> node = new Node<>(value);
+        Node<T> previous = producerNode.getAndSet(node);
+        previous.lazySet(node);
+    }
+
+    /**
+     * @return the oldest value, or null if the queue is empty
+     */
+    public T poll() {
+        Node<T> next = consumerNode.get();
+        if (next == null) {
+            if (consumerNode == producerNode.get()) {
+                return null;
+            }
+            // A producer has swapped itself in but not linked the previous node yet
+            do {
+                next = consumerNode.get();
+            } while (next == null);
+        }
+        T value = next.value;
+        next.value = null;
+        consumerNode = next;
+        return value;
+    }
+
+    public boolean isEmpty() {
+        return consumerNode == producerNode.get();
+    }
+
+    static final class Node<T> extends AtomicReference<Node<T>> {
+        private static final long serialVersionUID = 1L;
+
+        T value;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+}
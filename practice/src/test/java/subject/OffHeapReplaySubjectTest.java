@@ -0,0 +1,326 @@
+package subject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import util.Codec;
+
+public class OffHeapReplaySubjectTest {
+    // Integer records take 4 + 8 + 4 bytes
+    private static final int RECORD = 16;
+
+    private final List<OffHeapReplaySubject<?>> subjects = new ArrayList<>();
+
+    @After
+    public void close() {
+        for (OffHeapReplaySubject<?> subject : subjects) {
+            subject.close();
+        }
+    }
+
+    private <T> OffHeapReplaySubject<T> track(OffHeapReplaySubject<T> subject) {
+        subjects.add(subject);
+        return subject;
+    }
+
+    @Test
+    public void replaysEverythingThatFits() {
+        OffHeapReplaySubject<Integer> subject = track(OffHeapReplaySubject.create(Codec.INTEGER, 1024));
+        for (int i = 0; i < 10; i++) {
+            subject.onNext(i);
+        }
+        subject.onComplete();
+
+        subject.test().assertResult(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void wrapsAroundAndKeepsTheLatestValues() {
+        // Not a multiple of the record size, so every turn skips the end of the file
+        OffHeapReplaySubject<Integer> subject = track(OffHeapReplaySubject.create(Codec.INTEGER, 5 * RECORD + 7));
+        for (int i = 0; i < 1000; i++) {
+            subject.onNext(i);
+            assertTrue(subject.size() <= 5 * RECORD + 7);
+        }
+        subject.onComplete();
+
+        List<Integer> values = subject.test().assertComplete().assertNoErrors().values();
+        assertContiguousUpTo(values, 999);
+        assertEquals(5, values.size());
+    }
+
+    @Test
+    public void evictsBySize() {
+        OffHeapReplaySubject<String> subject = track(OffHeapReplaySubject.create(Codec.STRING, 200));
+        for (int i = 0; i < 500; i++) {
+            subject.onNext(value(i));
+            assertTrue(subject.size() <= 200);
+        }
+        subject.onComplete();
+
+        List<String> values = subject.test().assertComplete().assertNoErrors().values();
+        assertFalse(values.isEmpty());
+        int last = 499;
+        for (int i = values.size() - 1; i >= 0; i--) {
+            assertEquals(value(last--), values.get(i));
+        }
+    }
+
+    @Test
+    public void wrapsAroundWithARecordBiggerThanTheSpaceBeforeIt() {
+        OffHeapReplaySubject<String> subject = track(OffHeapReplaySubject.create(Codec.STRING, 100));
+        String small = repeat('a', 50 - 12);
+        String big = repeat('b', 60 - 12);
+        subject.onNext(small);
+        TestObserver<String> observer = subject.test();
+
+        // Skips the last 50 bytes and needs the first 60: nothing is left of the small one
+        subject.onNext(big);
+
+        assertEquals(60, subject.size());
+        observer.assertValues(small, big);
+        subject.test().assertValues(big);
+        subject.onNext(small);
+        subject.test().assertValues(small);
+    }
+
+    @Test
+    public void evictsByAge() {
+        TestScheduler scheduler = new TestScheduler();
+        OffHeapReplaySubject<Integer> subject = track(OffHeapReplaySubject.createWithTime(
+                Codec.INTEGER, 1024, 10, TimeUnit.SECONDS, scheduler));
+        for (int i = 0; i < 20; i++) {
+            subject.onNext(i);
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        }
+
+        // Values 10 to 19 were written less than 10 seconds ago
+        subject.test().assertValues(10, 11, 12, 13, 14, 15, 16, 17, 18, 19).assertNotComplete();
+
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+        subject.test().assertValues(15, 16, 17, 18, 19);
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        subject.onNext(100);
+        assertEquals(RECORD, subject.size());
+        subject.test().assertValues(100);
+    }
+
+    @Test
+    public void liveSubscriberGetsEveryValueThroughWraps() {
+        OffHeapReplaySubject<Integer> subject = track(OffHeapReplaySubject.create(Codec.INTEGER, 3 * RECORD));
+        TestObserver<Integer> observer = subject.test();
+        for (int i = 0; i < 1000; i++) {
+            subject.onNext(i);
+        }
+        subject.onComplete();
+
+        observer.assertComplete().assertNoErrors().assertValueCount(1000);
+        assertContiguousUpTo(observer.values(), 999);
+    }
+
+    @Test
+    public void errorIsReplayedAfterTheHistory() {
+        OffHeapReplaySubject<Integer> subject = track(OffHeapReplaySubject.create(Codec.INTEGER, 2 * RECORD));
+        for (int i = 0; i < 5; i++) {
+            subject.onNext(i);
+        }
+        IllegalStateException error = new IllegalStateException();
+        subject.onError(error);
+
+        subject.test().assertFailure(IllegalStateException.class, 3, 4);
+    }
+
+    /**
+     * Late subscribers replay on their own thread while the writer keeps wrapping around a small file,
+     * dropping the records they are reading. Every one must see values in order and each decoded intact;
+     * they dispose within the history they replay, so that the writer does not replay to all of them. The subscribers
+     * that stay must see the last value once the subject completes.
+     */
+    @Test(timeout = 60_000)
+    public void lateSubscribersReplayWhileTheWriterWraps() throws InterruptedException {
+        int count = 200_000;
+        OffHeapReplaySubject<String> subject = track(OffHeapReplaySubject.create(Codec.STRING, 256));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<CheckingObserver> observers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            CheckingObserver observer = new CheckingObserver(failure, Integer.MAX_VALUE);
+            observers.add(observer);
+            subject.subscribe(observer);
+        }
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                subject.onNext(value(i));
+            }
+            writing.set(false);
+            subject.onComplete();
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                while (writing.get()) {
+                    subject.subscribe(new CheckingObserver(failure, 3));
+                }
+            });
+            readers.add(reader);
+        }
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        for (CheckingObserver observer : observers) {
+            assertTrue(observer.done.await(5, TimeUnit.SECONDS));
+            assertEquals(count - 1, observer.last);
+        }
+    }
+
+    /**
+     * Replays of most of a larger file, so that the writer wraps around and overwrites records while
+     * they are being read: each one must be read whole or read again, never torn.
+     */
+    @Test(timeout = 60_000)
+    public void replaysReadIntactRecordsWhileTheWriterOverwritesThem() throws InterruptedException {
+        int count = 200_000;
+        OffHeapReplaySubject<String> subject = track(OffHeapReplaySubject.create(Codec.STRING, 4096));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                subject.onNext(value(i));
+            }
+            writing.set(false);
+            subject.onComplete();
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            Thread reader = new Thread(() -> {
+                while (writing.get()) {
+                    subject.subscribe(new CheckingObserver(failure, 100));
+                }
+            });
+            readers.add(reader);
+        }
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void closeDeletesTheFile() throws Exception {
+        File file = File.createTempFile("replay", ".seg");
+        OffHeapReplaySubject<Integer> subject = OffHeapReplaySubject.create(Codec.INTEGER, file, 1024);
+        subject.onNext(1);
+        assertTrue(file.exists());
+
+        subject.close();
+
+        assertFalse(file.exists());
+    }
+
+    private static String value(int i) {
+        // Varying lengths, so that records do not line up with the end of the file,
+        // and some are too big for the space before them once the writer wraps around
+        StringBuilder b = new StringBuilder().append(i).append(':');
+        int length = i % 11 == 0 ? 100 : i % 7;
+        for (int j = 0; j < length; j++) {
+            b.append('x');
+        }
+        return b.toString();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            b.append(c);
+        }
+        return b.toString();
+    }
+
+    private static void assertContiguousUpTo(List<Integer> values, int last) {
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(last - (values.size() - 1 - i), (int) values.get(i));
+        }
+    }
+
+    static final class CheckingObserver implements Observer<String> {
+        final AtomicReference<Throwable> failure;
+        final int limit;
+        final CountDownLatch done = new CountDownLatch(1);
+        Disposable upstream;
+        int received;
+        volatile int last = -1;
+
+        CheckingObserver(AtomicReference<Throwable> failure, int limit) {
+            this.failure = failure;
+            this.limit = limit;
+        }
+
+        @Override
+        public void onSubscribe(Disposable d) {
+            upstream = d;
+        }
+
+        @Override
+        public void onNext(String s) {
+            int i;
+            try {
+                i = Integer.parseInt(s.substring(0, s.indexOf(':')));
+            } catch (RuntimeException e) {
+                i = -1;
+            }
+            if (i < 0 || !s.equals(value(i)) || i <= last) {
+                failure.compareAndSet(null, new AssertionError("Got " + s + " after " + last));
+                upstream.dispose();
+                return;
+            }
+            last = i;
+            if (++received == limit) {
+                upstream.dispose();
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            failure.compareAndSet(null, e);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}